@@ -1,14 +1,17 @@
 package com.example.backend.Configuration;
 
-import com.example.backend.Model.ClickHouseConnection;
+import com.example.backend.Service.ConnectionRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
 
 @Configuration
 public class AppConfig {
 
+    // Spring Boot applies it to the application task executor, which runs streamed responses and SSE emitters,
+    // so they keep the ClickHouse target of the request that started them
     @Bean
-    public ClickHouseConnection clickHouseConnection(){
-        return new ClickHouseConnection();
+    public TaskDecorator connectionProfileTaskDecorator(ConnectionRegistry connectionRegistry) {
+        return connectionRegistry::propagate;
     }
 }
@@ -1,18 +1,40 @@
 package com.example.backend.Contoller;
 
+import com.example.backend.DTO.ExportSummaryDTO;
+import com.example.backend.DTO.IncrementalExportDTO;
 import com.example.backend.DTO.IngestionResponse;
+import com.example.backend.DTO.MetadataCacheStatsDTO;
+import com.example.backend.DTO.IngestionStats;
+import com.example.backend.DTO.PoolStatsDTO;
 import com.example.backend.DTO.ResponseDTO;
 import com.example.backend.Model.ClickHouseConnection;
+import com.example.backend.Model.ColumnTransform;
+import com.example.backend.Model.ExportCompression;
+import com.example.backend.Model.ExportLayout;
+import com.example.backend.Model.ExportSharding;
+import com.example.backend.Model.FileFormat;
+import com.example.backend.Model.IncrementalOutput;
+import com.example.backend.Model.IngestOptions;
+import com.example.backend.Model.InsertMode;
+import com.example.backend.Model.PreviewRequest;
 import com.example.backend.Service.ClickHouseService;
+import com.example.backend.Service.IncrementalExportService;
 import com.example.backend.Service.JwtService;
+import com.example.backend.Service.ParallelExportService;
+import com.example.backend.Service.PreviewService;
+import com.example.backend.Service.ProgressListener;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.sql.Connection;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Stream;
 
 @RestController
@@ -27,17 +49,23 @@ public class ClickHouseController {
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private ParallelExportService parallelExportService;
+
+    @Autowired
+    private PreviewService previewService;
+
+    @Autowired
+    private IncrementalExportService incrementalExportService;
+
     @PostMapping("/connect")
     public ResponseEntity<ResponseDTO> connectToDatabase(@RequestBody ClickHouseConnection credentials) {
         try {
             log.info("Received database credentials: {}", credentials);
-            clickHouseService.setClickHouseConnection(credentials);
-            Connection connection = clickHouseService.getConnection();
-            if (connection != null) {
-                return ResponseEntity.ok(new ResponseDTO(jwtService.generateToken(credentials.getUsername()), "Connection established successfully!"));
-            } else {
-                return ResponseEntity.status(500).body(new ResponseDTO(null, "Failed to establish connection."));
-            }
+            // Every connect starts a session of its own, so users never share or overwrite each other's target
+            String sessionId = UUID.randomUUID().toString();
+            clickHouseService.connect(sessionId, credentials);
+            return ResponseEntity.ok(new ResponseDTO(jwtService.generateToken(credentials.getUsername(), sessionId), "Connection established successfully!"));
         } catch (Exception e) {
             log.error("Error while connecting to database: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(new ResponseDTO(null, "An error occurred: " + e.getMessage()));
@@ -70,41 +98,226 @@ public class ClickHouseController {
         }
     }
 
+    @GetMapping("/metadata/stats")
+    public ResponseEntity<MetadataCacheStatsDTO> getMetadataCacheStats() {
+        return ResponseEntity.ok(clickHouseService.getMetadataCacheStats());
+    }
+
+    @PostMapping("/metadata/refresh")
+    public ResponseEntity<String> refreshMetadata() {
+        try {
+            clickHouseService.refreshMetadata();
+            return ResponseEntity.ok("Schema metadata refreshed.");
+        } catch (Exception e) {
+            log.error("Error refreshing schema metadata: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body("Schema metadata refresh failed: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/pool")
+    public ResponseEntity<PoolStatsDTO> getPoolStats() {
+        try {
+            PoolStatsDTO stats = clickHouseService.getPoolStats();
+            if (stats == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            log.error("Error fetching pool stats: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
     @PostMapping(value = "/ingest", consumes = "application/json")
     public ResponseEntity<?> ingestDataStream(
             @RequestBody List<Map<String, String>> rows,
             @RequestParam("table") String tableName,
-            @RequestParam(value = "batchSize", defaultValue = "1000") int batchSize) {
+            @RequestParam(value = "batchSize", defaultValue = "1000") int batchSize,
+            @RequestParam(value = "insertMode", required = false) InsertMode insertMode,
+            @RequestParam(value = "inferTypes", defaultValue = "false") boolean inferTypes,
+            @RequestParam(value = "orderBy", required = false) String orderBy,
+            @RequestParam(value = "partitionBy", required = false) String partitionBy,
+            @RequestParam(value = "transforms", required = false) String transforms,
+            @RequestParam(value = "ingestId", required = false) String ingestId) {
 
         try {
             log.info("Starting data ingestion for table: {} with batch size: {}", tableName, batchSize);
+            IngestOptions options = IngestOptions.ofBatchSize(batchSize);
+            options.setInsertMode(insertMode);
+            options.setInferTypes(inferTypes);
+            options.setOrderBy(orderBy);
+            options.setPartitionBy(partitionBy);
+            options.setTransforms(ColumnTransform.parseList(transforms));
+            options.setIngestId(ingestId);
             Stream<Map<String, String>> rowsStream = rows.stream();
-            int recordCount = clickHouseService.ingestData(rowsStream, tableName, batchSize);
-            log.info("Data ingestion successful. Records processed: {}", recordCount);
+            IngestionStats stats = clickHouseService.ingestData(rowsStream, tableName, options);
+            log.info("Data ingestion successful. Records processed: {}", stats.getRowsIngested());
 
-            return ResponseEntity.ok(new IngestionResponse("Data ingestion successful", recordCount));
+            return ResponseEntity.ok(new IngestionResponse("Data ingestion successful", stats.getRowsIngested(), stats));
         } catch (Exception e) {
             log.error("Error during data ingestion: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(new IngestionResponse("Data ingestion failed: " + e.getMessage(), 0));
         }
     }
 
+    // Same options as /ingest, but the body (a JSON array or NDJSON) is parsed while it is being inserted
+    @PostMapping(value = "/ingest/stream", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<?> ingestJsonStream(
+            InputStream body,
+            @RequestParam("table") String tableName,
+            @RequestParam(value = "batchSize", defaultValue = "1000") int batchSize,
+            @RequestParam(value = "insertMode", required = false) InsertMode insertMode,
+            @RequestParam(value = "inferTypes", defaultValue = "false") boolean inferTypes,
+            @RequestParam(value = "orderBy", required = false) String orderBy,
+            @RequestParam(value = "partitionBy", required = false) String partitionBy,
+            @RequestParam(value = "transforms", required = false) String transforms,
+            @RequestParam(value = "ingestId", required = false) String ingestId) {
+
+        try {
+            log.info("Starting streamed JSON ingestion for table: {} with batch size: {}", tableName, batchSize);
+            IngestOptions options = IngestOptions.ofBatchSize(batchSize);
+            options.setInsertMode(insertMode);
+            options.setInferTypes(inferTypes);
+            options.setOrderBy(orderBy);
+            options.setPartitionBy(partitionBy);
+            options.setTransforms(ColumnTransform.parseList(transforms));
+            options.setIngestId(ingestId);
+            IngestionStats stats = clickHouseService.ingestJson(body, tableName, options);
+            log.info("Streamed JSON ingestion successful. Records processed: {}", stats.getRowsIngested());
+
+            return ResponseEntity.ok(new IngestionResponse("Data ingestion successful", stats.getRowsIngested(), stats));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected JSON ingestion: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new IngestionResponse("Data ingestion failed: " + e.getMessage(), 0));
+        } catch (Exception e) {
+            log.error("Error during streamed JSON ingestion: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(new IngestionResponse("Data ingestion failed: " + e.getMessage(), 0));
+        }
+    }
+
     @PostMapping("/export")
     public ResponseEntity<?> exportSelectedColumnsToFlatFile(
             @RequestParam("table") String tableName,
             @RequestParam("filePath") String filePath,
+            @RequestParam(value = "format", defaultValue = "CSV") FileFormat format,
+            @RequestParam(value = "compression", defaultValue = "NONE") ExportCompression compression,
             @RequestBody List<String> selectedColumns) {
 
         try {
             log.info("Starting export of selected columns '{}' from table '{}' to file '{}'", selectedColumns, tableName, filePath);
-            clickHouseService.exportSelectedColumnsToFlatFile(tableName, selectedColumns, filePath);
+            clickHouseService.exportSelectedColumnsToFlatFile(tableName, selectedColumns, filePath, format, compression, ProgressListener.NONE);
             return ResponseEntity.ok("Data export completed successfully.");
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected export of table '{}': {}", tableName, e.getMessage());
+            return ResponseEntity.badRequest().body("Data export failed: " + e.getMessage());
         } catch (Exception e) {
             log.error("Error during data export: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body("Data export failed: " + e.getMessage());
         }
     }
 
+    @PostMapping("/export/parallel")
+    public ResponseEntity<ExportSummaryDTO> exportSelectedColumnsInParallel(
+            @RequestParam("table") String tableName,
+            @RequestParam("filePath") String filePath,
+            @RequestParam(value = "parallelism", defaultValue = "0") int parallelism,
+            @RequestParam(value = "sharding", defaultValue = "HASH") ExportSharding sharding,
+            @RequestParam(value = "shardKey", required = false) String shardKey,
+            @RequestParam(value = "layout", defaultValue = "CONCATENATED") ExportLayout layout,
+            @RequestBody List<String> selectedColumns) {
+
+        try {
+            log.info("Starting parallel export of selected columns '{}' from table '{}' to file '{}'", selectedColumns, tableName, filePath);
+            return ResponseEntity.ok(parallelExportService.export(tableName, selectedColumns, filePath, parallelism, sharding, shardKey, layout));
+        } catch (Exception e) {
+            log.error("Error during parallel data export: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(new ExportSummaryDTO("Data export failed: " + e.getMessage()));
+        }
+    }
+
+    // Exports only the rows added since the last run to the same file, going by the watermark column
+    @PostMapping("/export/incremental")
+    public ResponseEntity<IncrementalExportDTO> exportIncrementally(
+            @RequestParam("table") String tableName,
+            @RequestParam("filePath") String filePath,
+            @RequestParam("watermarkColumn") String watermarkColumn,
+            @RequestParam(value = "output", defaultValue = "APPEND") IncrementalOutput output,
+            @RequestParam(value = "format", defaultValue = "CSV") FileFormat format,
+            @RequestParam(value = "compression", defaultValue = "NONE") ExportCompression compression,
+            @RequestBody List<String> selectedColumns) {
+
+        try {
+            log.info("Starting incremental export of selected columns '{}' from table '{}' to file '{}'", selectedColumns, tableName, filePath);
+            return ResponseEntity.ok(incrementalExportService.export(tableName, selectedColumns, filePath, watermarkColumn, output, format, compression));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected incremental export of table '{}': {}", tableName, e.getMessage());
+            return ResponseEntity.badRequest().body(new IncrementalExportDTO("Data export failed: " + e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error during incremental data export: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(new IncrementalExportDTO("Data export failed: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/export/incremental")
+    public ResponseEntity<String> resetIncrementalExport(
+            @RequestParam("table") String tableName,
+            @RequestParam("filePath") String filePath,
+            @RequestParam("watermarkColumn") String watermarkColumn) {
+
+        try {
+            return incrementalExportService.reset(tableName, filePath, watermarkColumn)
+                    ? ResponseEntity.ok("Watermark reset; the next run exports the whole table.")
+                    : ResponseEntity.status(404).body("No watermark recorded for this export.");
+        } catch (Exception e) {
+            log.error("Error resetting incremental export of table '{}': {}", tableName, e.getMessage(), e);
+            return ResponseEntity.status(500).body("Reset failed: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/export/stream")
+    public ResponseEntity<?> streamSelectedColumns(
+            @RequestParam("table") String tableName,
+            @RequestParam(value = "format", defaultValue = "CSV") FileFormat format,
+            @RequestParam(value = "compression", defaultValue = "NONE") ExportCompression compression,
+            @RequestBody List<String> selectedColumns) {
+
+        // The status and headers are sent before the body runs, so a bad request has to be turned away here
+        try {
+            clickHouseService.validateExport(tableName, selectedColumns, format, compression);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected streamed export of table '{}': {}", tableName, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error preparing streamed export of table '{}': {}", tableName, e.getMessage(), e);
+            return ResponseEntity.status(500).body(Map.of("error", "Data export failed: " + e.getMessage()));
+        }
+        log.info("Starting streamed export of selected columns '{}' from table '{}'", selectedColumns, tableName);
+        StreamingResponseBody body = out -> clickHouseService.exportSelectedColumns(tableName, selectedColumns, out, format, compression, ProgressListener.NONE);
+        // Columnar formats carry their compression inside the file, so only row formats get an outer extension
+        boolean wrapped = compression != ExportCompression.NONE && !format.isColumnar();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + tableName + format.getExtension()
+                        + (wrapped ? compression.getExtension() : "") + "\"")
+                .contentType(MediaType.parseMediaType(wrapped ? compression.getContentType() : format.getContentType()))
+                .body(body);
+    }
+
+    // Filters, paging and sampling run in ClickHouse; rows are written to the response as they arrive
+    @PostMapping(value = "/preview", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> previewTable(@RequestParam("table") String tableName, @RequestBody(required = false) PreviewRequest request) {
+        try {
+            PreviewService.PreviewQuery query = previewService.prepare(tableName, request == null ? new PreviewRequest() : request);
+            StreamingResponseBody body = out -> previewService.stream(query, out);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected preview of table '{}': {}", tableName, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error preparing preview of table '{}': {}", tableName, e.getMessage(), e);
+            return ResponseEntity.status(500).body(Map.of("error", "Preview failed: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/validate")
     public ResponseEntity<Boolean> validateToken(@RequestHeader(value = "Authorization") String token) {
         try {
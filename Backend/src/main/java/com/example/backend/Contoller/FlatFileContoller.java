@@ -2,7 +2,13 @@ package com.example.backend.Contoller;
 
 
 import com.example.backend.DTO.UploadResponseDTO;
+import com.example.backend.DTO.UploadSummaryDTO;
+import com.example.backend.Model.ColumnTransform;
+import com.example.backend.Model.FileFormat;
+import com.example.backend.Model.IngestOptions;
+import com.example.backend.Model.InsertMode;
 import com.example.backend.Service.FlatFileService;
+import com.example.backend.Service.LocalFileIngestService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -21,6 +27,9 @@ public class FlatFileContoller {
     @Autowired
     private FlatFileService flatFileService;
 
+    @Autowired
+    private LocalFileIngestService localFileIngestService;
+
     @PostMapping("/upload")
     public ResponseEntity<UploadResponseDTO> uploadFlatFile(
             @RequestParam(value = "file", required = true) MultipartFile file,
@@ -32,11 +41,106 @@ public class FlatFileContoller {
             List<Map<String, String>> rows = flatFileService.upload(file, delimiter, tableName);
             UploadResponseDTO response = new UploadResponseDTO("File uploaded successfully!", rows);
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected upload: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new UploadResponseDTO(e.getMessage(), null));
         } catch (Exception e) {
             log.error("Error while uploading file: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(new UploadResponseDTO("An error occurred: " + e.getMessage(), null));
         }
     }
 
+    @PostMapping("/upload/stream")
+    public ResponseEntity<UploadSummaryDTO> uploadFlatFileStreaming(
+            @RequestParam(value = "file", required = true) MultipartFile file,
+            @RequestParam(value = "delimiter", required = true) String delimiter,
+            @RequestParam("table") String tableName,
+            @RequestParam(value = "batchSize", defaultValue = "10000") int batchSize,
+            @RequestParam(value = "insertMode", required = false) InsertMode insertMode,
+            @RequestParam(value = "inferTypes", defaultValue = "false") boolean inferTypes,
+            @RequestParam(value = "orderBy", required = false) String orderBy,
+            @RequestParam(value = "partitionBy", required = false) String partitionBy,
+            @RequestParam(value = "transforms", required = false) String transforms,
+            @RequestParam(value = "ingestId", required = false) String ingestId
+    ) {
+        try {
+            log.info("Streaming file: {} into table: {}", file.getOriginalFilename(), tableName);
+            IngestOptions options = IngestOptions.ofBatchSize(batchSize);
+            options.setInsertMode(insertMode);
+            options.setInferTypes(inferTypes);
+            options.setOrderBy(orderBy);
+            options.setPartitionBy(partitionBy);
+            options.setTransforms(ColumnTransform.parseList(transforms));
+            options.setIngestId(ingestId);
+            return ResponseEntity.ok(flatFileService.uploadStreaming(file, delimiter, tableName, options));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected streaming upload: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new UploadSummaryDTO(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error while streaming file: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(new UploadSummaryDTO("An error occurred: " + e.getMessage()));
+        }
+    }
 
+    // Ingests a CSV file that is already on the server, relative to flatfile.local.base-dir
+    @PostMapping("/upload/local")
+    public ResponseEntity<UploadSummaryDTO> uploadLocalFile(
+            @RequestParam("path") String path,
+            @RequestParam(value = "delimiter", defaultValue = ",") String delimiter,
+            @RequestParam("table") String tableName,
+            @RequestParam(value = "batchSize", defaultValue = "10000") int batchSize,
+            @RequestParam(value = "insertMode", required = false) InsertMode insertMode,
+            @RequestParam(value = "inferTypes", defaultValue = "false") boolean inferTypes,
+            @RequestParam(value = "orderBy", required = false) String orderBy,
+            @RequestParam(value = "partitionBy", required = false) String partitionBy,
+            @RequestParam(value = "transforms", required = false) String transforms,
+            @RequestParam(value = "ingestId", required = false) String ingestId,
+            @RequestParam(value = "raw", defaultValue = "false") boolean raw,
+            @RequestParam(value = "format", defaultValue = "CSV") FileFormat format,
+            @RequestParam(value = "validateRows", defaultValue = "0") int validateRows
+    ) {
+        try {
+            if (raw) {
+                log.info("Forwarding local {} file: {} into table: {}", format, path, tableName);
+                return ResponseEntity.ok(localFileIngestService.ingestRaw(path, delimiter, tableName, format, validateRows, orderBy, partitionBy));
+            }
+            log.info("Ingesting local file: {} into table: {}", path, tableName);
+            IngestOptions options = IngestOptions.ofBatchSize(batchSize);
+            options.setInsertMode(insertMode);
+            options.setInferTypes(inferTypes);
+            options.setOrderBy(orderBy);
+            options.setPartitionBy(partitionBy);
+            options.setTransforms(ColumnTransform.parseList(transforms));
+            options.setIngestId(ingestId);
+            return ResponseEntity.ok(localFileIngestService.ingest(path, delimiter, tableName, options));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected local file ingest: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new UploadSummaryDTO(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error while ingesting local file: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(new UploadSummaryDTO("An error occurred: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/upload/raw")
+    public ResponseEntity<UploadSummaryDTO> uploadFlatFileRaw(
+            @RequestParam(value = "file", required = true) MultipartFile file,
+            @RequestParam("table") String tableName,
+            @RequestParam(value = "format", defaultValue = "CSV") FileFormat format,
+            @RequestParam(value = "delimiter", defaultValue = ",") String delimiter,
+            @RequestParam(value = "validateRows", defaultValue = "0") int validateRows,
+            @RequestParam(value = "orderBy", required = false) String orderBy,
+            @RequestParam(value = "partitionBy", required = false) String partitionBy
+    ) {
+        try {
+            log.info("Forwarding raw {} file: {} into table: {}", format, file.getOriginalFilename(), tableName);
+            return ResponseEntity.ok(flatFileService.uploadRaw(file, tableName, format, delimiter, validateRows, orderBy, partitionBy));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected raw upload: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new UploadSummaryDTO(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error while forwarding file: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(new UploadSummaryDTO("An error occurred: " + e.getMessage()));
+        }
+    }
 }
@@ -0,0 +1,158 @@
+package com.example.backend.Contoller;
+
+import com.example.backend.DTO.JobStatusDTO;
+import com.example.backend.Interceptor.JwtInterceptor;
+import com.example.backend.Model.ColumnTransform;
+import com.example.backend.Model.ExportCompression;
+import com.example.backend.Model.FileFormat;
+import com.example.backend.Model.IngestOptions;
+import com.example.backend.Model.InsertMode;
+import com.example.backend.Service.JobService;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/jobs")
+@Slf4j
+@CrossOrigin(origins = "http://localhost:5173", allowedHeaders = "*", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
+public class JobController {
+
+    @Autowired
+    private JobService jobService;
+
+    @PostMapping(value = "/ingest", consumes = "application/json")
+    public ResponseEntity<JobStatusDTO> submitIngest(
+            @RequestAttribute(JwtInterceptor.CLAIMS_ATTRIBUTE) Claims claims,
+            @RequestBody List<Map<String, String>> rows,
+            @RequestParam("table") String tableName,
+            @RequestParam(value = "batchSize", defaultValue = "1000") int batchSize,
+            @RequestParam(value = "insertMode", required = false) InsertMode insertMode,
+            @RequestParam(value = "inferTypes", defaultValue = "false") boolean inferTypes,
+            @RequestParam(value = "orderBy", required = false) String orderBy,
+            @RequestParam(value = "partitionBy", required = false) String partitionBy,
+            @RequestParam(value = "transforms", required = false) String transforms,
+            @RequestParam(value = "ingestId", required = false) String ingestId) {
+        try {
+            IngestOptions options = buildOptions(batchSize, insertMode, inferTypes, orderBy, partitionBy, transforms, ingestId);
+            return ResponseEntity.accepted().body(jobService.submitIngest(claims.getSubject(), rows, tableName, options));
+        } catch (Exception e) {
+            return submitFailed(e);
+        }
+    }
+
+    @PostMapping("/upload")
+    public ResponseEntity<JobStatusDTO> submitUpload(
+            @RequestAttribute(JwtInterceptor.CLAIMS_ATTRIBUTE) Claims claims,
+            @RequestParam(value = "file", required = true) MultipartFile file,
+            @RequestParam(value = "delimiter", required = true) String delimiter,
+            @RequestParam("table") String tableName,
+            @RequestParam(value = "batchSize", defaultValue = "10000") int batchSize,
+            @RequestParam(value = "insertMode", required = false) InsertMode insertMode,
+            @RequestParam(value = "inferTypes", defaultValue = "false") boolean inferTypes,
+            @RequestParam(value = "orderBy", required = false) String orderBy,
+            @RequestParam(value = "partitionBy", required = false) String partitionBy,
+            @RequestParam(value = "transforms", required = false) String transforms,
+            @RequestParam(value = "ingestId", required = false) String ingestId) {
+        try {
+            log.info("Queueing upload of file: {} into table: {}", file.getOriginalFilename(), tableName);
+            IngestOptions options = buildOptions(batchSize, insertMode, inferTypes, orderBy, partitionBy, transforms, ingestId);
+            return ResponseEntity.accepted().body(jobService.submitUpload(claims.getSubject(), file, delimiter, tableName, options));
+        } catch (Exception e) {
+            return submitFailed(e);
+        }
+    }
+
+    @PostMapping("/export")
+    public ResponseEntity<JobStatusDTO> submitExport(
+            @RequestAttribute(JwtInterceptor.CLAIMS_ATTRIBUTE) Claims claims,
+            @RequestParam("table") String tableName,
+            @RequestParam("filePath") String filePath,
+            @RequestParam(value = "format", defaultValue = "CSV") FileFormat format,
+            @RequestParam(value = "compression", defaultValue = "NONE") ExportCompression compression,
+            @RequestBody List<String> selectedColumns) {
+        try {
+            return ResponseEntity.accepted().body(jobService.submitExport(claims.getSubject(), tableName, selectedColumns, filePath, format, compression));
+        } catch (Exception e) {
+            return submitFailed(e);
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<JobStatusDTO>> listJobs(@RequestAttribute(JwtInterceptor.CLAIMS_ATTRIBUTE) Claims claims) {
+        return ResponseEntity.ok(jobService.listJobs(claims.getSubject()));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobStatusDTO> getJob(@RequestAttribute(JwtInterceptor.CLAIMS_ATTRIBUTE) Claims claims, @PathVariable("id") String id) {
+        try {
+            return ResponseEntity.ok(jobService.getJob(id, claims.getSubject()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new JobStatusDTO(e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<JobStatusDTO> cancelJob(@RequestAttribute(JwtInterceptor.CLAIMS_ATTRIBUTE) Claims claims, @PathVariable("id") String id) {
+        try {
+            return ResponseEntity.ok(jobService.cancel(id, claims.getSubject()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new JobStatusDTO(e.getMessage()));
+        }
+    }
+
+    // Reruns a failed or cancelled ingest/upload as a new job that skips the batches the old one committed
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<JobStatusDTO> resumeJob(@RequestAttribute(JwtInterceptor.CLAIMS_ATTRIBUTE) Claims claims, @PathVariable("id") String id) {
+        try {
+            return ResponseEntity.accepted().body(jobService.resume(id, claims.getSubject()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new JobStatusDTO(e.getMessage()));
+        } catch (Exception e) {
+            return submitFailed(e);
+        }
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@RequestAttribute(JwtInterceptor.CLAIMS_ATTRIBUTE) Claims claims, @PathVariable("id") String id) {
+        try {
+            return ResponseEntity.ok(jobService.streamProgress(id, claims.getSubject()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private IngestOptions buildOptions(int batchSize, InsertMode insertMode, boolean inferTypes, String orderBy, String partitionBy,
+                                       String transforms, String ingestId) {
+        IngestOptions options = IngestOptions.ofBatchSize(batchSize);
+        options.setInsertMode(insertMode);
+        options.setInferTypes(inferTypes);
+        options.setOrderBy(orderBy);
+        options.setPartitionBy(partitionBy);
+        options.setTransforms(ColumnTransform.parseList(transforms));
+        options.setIngestId(ingestId);
+        return options;
+    }
+
+    private ResponseEntity<JobStatusDTO> submitFailed(Exception e) {
+        if (e instanceof IllegalArgumentException) {
+            log.warn("Job rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(new JobStatusDTO(e.getMessage()));
+        }
+        if (e instanceof IllegalStateException) {
+            log.warn("Job rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(new JobStatusDTO(e.getMessage()));
+        }
+        log.error("Error submitting job: {}", e.getMessage(), e);
+        return ResponseEntity.status(500).body(new JobStatusDTO("Job submission failed: " + e.getMessage()));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.backend.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ExportSummaryDTO {
+    private String message;
+    private long rowsExported;
+    private int segments;
+    private long elapsedMillis;
+    private String outputPath;
+
+    public ExportSummaryDTO(String message) {
+        this(message, 0, 0, 0, null);
+    }
+}
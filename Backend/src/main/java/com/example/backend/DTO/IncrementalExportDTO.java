@@ -0,0 +1,19 @@
+package com.example.backend.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class IncrementalExportDTO {
+    private String message;
+    private long rowsExported;
+    private String outputPath;
+    private String previousWatermark;
+    private String watermark;
+    private long elapsedMillis;
+
+    public IncrementalExportDTO(String message) {
+        this(message, 0, null, null, null, 0);
+    }
+}
@@ -7,5 +7,10 @@ import lombok.Data;
 @AllArgsConstructor
 public class IngestionResponse {
     private String message;
-    private int recordsProcessed;
-}
\ No newline at end of file
+    private long recordsProcessed;
+    private IngestionStats stats;
+
+    public IngestionResponse(String message, long recordsProcessed) {
+        this(message, recordsProcessed, null);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.backend.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class IngestionStats {
+    private long rowsIngested;
+    private long batches;
+    private int workers;
+    private long elapsedMillis;
+    private long producerMillis;
+    private long insertMillis;
+    private double rowsPerSecond;
+    private double batchesPerSecond;
+    private long transformFailures;
+    private List<String> transformFailureSamples;
+    private String ingestId;
+    private long batchesSkipped;
+    private long rowsSkipped;
+    private long retries;
+
+    public static IngestionStats empty() {
+        return new IngestionStats(0, 0, 0, 0, 0, 0, 0, 0, 0, List.of(), null, 0, 0, 0);
+    }
+}
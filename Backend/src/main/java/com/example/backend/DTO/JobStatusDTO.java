@@ -0,0 +1,37 @@
+package com.example.backend.DTO;
+
+import com.example.backend.Model.JobStatus;
+import com.example.backend.Model.JobType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatusDTO {
+    private String id;
+    private JobType type;
+    private String owner;
+    private String table;
+    private JobStatus status;
+    private long rowsProcessed;
+    private long totalRows;
+    private long bytesProcessed;
+    private long totalBytes;
+    private double rowsPerSecond;
+    private double bytesPerSecond;
+    private Long etaSeconds;
+    private long elapsedMillis;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String message;
+    private Object result;
+
+    public JobStatusDTO(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.backend.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MetadataCacheStatsDTO {
+    private int size;
+    private int maxEntries;
+    private long ttlMs;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long evictions;
+    private long invalidations;
+    private long refreshes;
+}
@@ -0,0 +1,21 @@
+package com.example.backend.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PoolStatsDTO {
+    private String poolName;
+    private int maxSize;
+    private int active;
+    private int idle;
+    private int total;
+    private int waiting;
+    private long connectionsCreated;
+    private double creationRatePerMinute;
+    private long acquireCount;
+    private double avgWaitMillis;
+    private double maxWaitMillis;
+    private long timeouts;
+}
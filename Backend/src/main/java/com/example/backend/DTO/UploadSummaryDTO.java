@@ -0,0 +1,30 @@
+package com.example.backend.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSummaryDTO {
+    private String message;
+    private long rowsIngested;
+    private int batches;
+    private long parseMillis;
+    private long insertMillis;
+    private long totalMillis;
+    private List<String> columns;
+    private List<Map<String, String>> preview;
+    private long transformFailures;
+    private List<String> transformFailureSamples;
+    private String ingestId;
+    private long rowsSkipped;
+
+    public UploadSummaryDTO(String message) {
+        this.message = message;
+    }
+}
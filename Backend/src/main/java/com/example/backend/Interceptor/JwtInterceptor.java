@@ -1,23 +1,32 @@
 package com.example.backend.Interceptor;
 
+import com.example.backend.Service.ConnectionProfile;
+import com.example.backend.Service.ConnectionRegistry;
 import com.example.backend.Service.JwtService;
-import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.MalformedJwtException;
-import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
 @Component
 @Slf4j
-public class JwtInterceptor implements HandlerInterceptor {
+public class JwtInterceptor implements AsyncHandlerInterceptor {
+
+    // Verified claims for the current request, readable in controllers via @RequestAttribute
+    public static final String CLAIMS_ATTRIBUTE = "jwtClaims";
 
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private ConnectionRegistry connectionRegistry;
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         // Allow preflight OPTIONS requests to pass through
@@ -30,11 +39,39 @@ public class JwtInterceptor implements HandlerInterceptor {
         if (token != null && token.startsWith("Bearer ")) {
             token = token.substring(7); // Remove "Bearer " prefix
         }
-        if (token == null || !jwtService.validateToken(token)) {
+        if (token == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return false;
+        }
+        Claims claims;
+        try {
+            claims = jwtService.verify(token);
+            request.setAttribute(CLAIMS_ATTRIBUTE, claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected request to {}: {}", request.getRequestURI(), e.getMessage());
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             return false;
         }
 
+        // The session's ClickHouse target serves the rest of the request; an async dispatch was already counted
+        ConnectionProfile profile = connectionRegistry.bind(ConnectionRegistry.tenantOf(claims));
+        if (profile != null && request.getDispatcherType() != DispatcherType.ASYNC && !profile.tryAcquire()) {
+            connectionRegistry.unbind();
+            log.debug("Rate limited session '{}' on {}", profile.getTenant(), request.getRequestURI());
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            return false;
+        }
         return true;
     }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        connectionRegistry.unbind();
+    }
+
+    // A streamed response goes on on another thread, which carries the profile itself; this one goes back to the pool
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        connectionRegistry.unbind();
+    }
 }
\ No newline at end of file
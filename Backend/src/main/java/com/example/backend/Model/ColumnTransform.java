@@ -0,0 +1,42 @@
+package com.example.backend.Model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+
+import java.util.List;
+
+// One column's transform steps for an ingest request, applied in this order: trim, null tokens, date/time, numeric
+@Data
+public class ColumnTransform {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private String column;
+    private String rename;
+    private boolean trim;
+    private List<String> nullTokens;
+    // Input pattern (java.time syntax) or "ISO"; values are rewritten as yyyy-MM-dd HH:mm:ss
+    private String dateTimeFormat;
+    // Input pattern or "ISO"; values are rewritten as yyyy-MM-dd
+    private String dateFormat;
+    // Drops grouping separators and writes the number in plain decimal notation
+    private boolean numeric;
+    // Single characters for numeric; "." and "," unless set, or "," and "." when only decimalSeparator is ","
+    private String decimalSeparator;
+    private String groupingSeparator;
+
+    // Transforms arrive as a JSON array in a request parameter, next to the multipart file or JSON rows
+    public static List<ColumnTransform> parseList(String json) {
+        if (json == null || json.isBlank()) {
+            return List.of();
+        }
+        try {
+            return MAPPER.readValue(json, new TypeReference<List<ColumnTransform>>() {
+            });
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid column transforms: " + e.getOriginalMessage(), e);
+        }
+    }
+}
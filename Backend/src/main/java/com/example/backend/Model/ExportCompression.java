@@ -0,0 +1,39 @@
+package com.example.backend.Model;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public enum ExportCompression {
+    NONE("", "text/csv"),
+    GZIP(".gz", "application/gzip"),
+    ZSTD(".zst", "application/zstd");
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String extension;
+    private final String contentType;
+
+    ExportCompression(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public OutputStream wrap(OutputStream out) throws IOException {
+        return switch (this) {
+            case NONE -> out;
+            case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE);
+            case ZSTD -> new ZstdOutputStream(out);
+        };
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.backend.Model;
+
+public enum ExportLayout {
+    CONCATENATED,
+    ARCHIVE
+}
@@ -0,0 +1,7 @@
+package com.example.backend.Model;
+
+public enum ExportSharding {
+    HASH,
+    PARTITION,
+    KEY_RANGE
+}
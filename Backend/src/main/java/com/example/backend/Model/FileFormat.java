@@ -0,0 +1,58 @@
+package com.example.backend.Model;
+
+import com.clickhouse.data.ClickHouseFormat;
+
+// File formats for moving whole tables. CSV is written row by row in the JVM; the others are produced and
+// parsed by ClickHouse itself and passed through as bytes in either direction.
+public enum FileFormat {
+    CSV(ClickHouseFormat.CSVWithNames, ".csv", "text/csv", null),
+    TSV(ClickHouseFormat.TabSeparatedWithNames, ".tsv", "text/tab-separated-values", null),
+    NDJSON(ClickHouseFormat.JSONEachRow, ".ndjson", "application/x-ndjson", null),
+    PARQUET(ClickHouseFormat.Parquet, ".parquet", "application/vnd.apache.parquet", "output_format_parquet_compression_method"),
+    ARROW(ClickHouseFormat.Arrow, ".arrow", "application/vnd.apache.arrow.file", "output_format_arrow_compression_method"),
+    ARROW_STREAM(ClickHouseFormat.ArrowStream, ".arrows", "application/vnd.apache.arrow.stream", "output_format_arrow_compression_method");
+
+    private final ClickHouseFormat clickHouseFormat;
+    private final String extension;
+    private final String contentType;
+    private final String codecSetting;
+
+    FileFormat(ClickHouseFormat clickHouseFormat, String extension, String contentType, String codecSetting) {
+        this.clickHouseFormat = clickHouseFormat;
+        this.extension = extension;
+        this.contentType = contentType;
+        this.codecSetting = codecSetting;
+    }
+
+    public ClickHouseFormat getClickHouseFormat() {
+        return clickHouseFormat;
+    }
+
+    // Output continuing an existing file leaves out the header; TSV is the one format naming its columns in-band
+    public ClickHouseFormat getClickHouseFormat(boolean header) {
+        return this == TSV && !header ? ClickHouseFormat.TabSeparated : clickHouseFormat;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    // Text with a header row and no types: tables are created from the header, with String columns
+    public boolean isDelimited() {
+        return this == CSV || this == TSV;
+    }
+
+    // Columnar formats compress their own column chunks; wrapping the whole file again gains nothing
+    public boolean isColumnar() {
+        return codecSetting != null;
+    }
+
+    // The server setting choosing the codec inside the file, for columnar formats
+    public String getCodecSetting() {
+        return codecSetting;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.Model;
+
+// How an incremental export lays out its runs: all in one growing file, or one numbered file per run
+public enum IncrementalOutput {
+    APPEND,
+    ROTATE
+}
@@ -0,0 +1,23 @@
+package com.example.backend.Model;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class IngestOptions {
+    private int batchSize = 1000;
+    private InsertMode insertMode;
+    private boolean inferTypes;
+    private String orderBy;
+    private String partitionBy;
+    private List<ColumnTransform> transforms = List.of();
+    // Names a resumable run: committed batches are checkpointed under it and skipped when it is rerun
+    private String ingestId;
+
+    public static IngestOptions ofBatchSize(int batchSize) {
+        IngestOptions options = new IngestOptions();
+        options.setBatchSize(batchSize);
+        return options;
+    }
+}
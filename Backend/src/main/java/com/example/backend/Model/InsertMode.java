@@ -0,0 +1,6 @@
+package com.example.backend.Model;
+
+public enum InsertMode {
+    JDBC_BATCH,
+    ROW_BINARY
+}
@@ -0,0 +1,7 @@
+package com.example.backend.Model;
+
+public enum JobType {
+    INGEST,
+    UPLOAD,
+    EXPORT
+}
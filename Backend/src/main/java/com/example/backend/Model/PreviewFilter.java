@@ -0,0 +1,14 @@
+package com.example.backend.Model;
+
+import lombok.Data;
+
+import java.util.List;
+
+// One WHERE condition: IN/NOT_IN read values, IS_NULL/IS_NOT_NULL read nothing, the rest read value
+@Data
+public class PreviewFilter {
+    private String column;
+    private FilterOperator operator = FilterOperator.EQ;
+    private String value;
+    private List<String> values;
+}
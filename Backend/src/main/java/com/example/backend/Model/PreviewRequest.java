@@ -0,0 +1,22 @@
+package com.example.backend.Model;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PreviewRequest {
+    // Empty selects every column
+    private List<String> columns = List.of();
+    // Combined with AND
+    private List<PreviewFilter> filters = List.of();
+    private List<String> orderBy = List.of();
+    private boolean descending;
+    // Keyset page: the orderBy values of the last row already seen, as returned in the previous page's "after"
+    private List<String> after;
+    private Long offset;
+    // Capped at clickhouse.preview.max-rows
+    private Integer limit;
+    // Fraction of the table to read through its sampling key, e.g. 0.01
+    private Double sample;
+}
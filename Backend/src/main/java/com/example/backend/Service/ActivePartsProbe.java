@@ -0,0 +1,86 @@
+package com.example.backend.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+import java.util.function.LongSupplier;
+
+// Reads the part count of the table a run inserts into, on a connection of its own: the run's workers may hold
+// every pooled connection, and a probe queued behind them would only ever time out. The connection is opened on
+// first use, dropped after an error and reopened by the next probe. Only the ingest producer calls it.
+@Slf4j
+class ActivePartsProbe implements LongSupplier, AutoCloseable {
+
+    private static final long DEFAULT_PARTS_TO_DELAY_INSERT = 150;
+
+    private final Callable<Connection> connectionFactory;
+    private final String tableName;
+    private Connection connection;
+
+    ActivePartsProbe(Callable<Connection> connectionFactory, String tableName) {
+        this.connectionFactory = connectionFactory;
+        this.tableName = tableName;
+    }
+
+    long partsToDelayInsert() {
+        try (Statement statement = connection().createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT value FROM system.merge_tree_settings WHERE name = 'parts_to_delay_insert'")) {
+            return resultSet.next() ? Long.parseLong(resultSet.getString(1)) : DEFAULT_PARTS_TO_DELAY_INSERT;
+        } catch (Exception e) {
+            log.warn("Could not read parts_to_delay_insert, assuming {}: {}", DEFAULT_PARTS_TO_DELAY_INSERT, e.getMessage());
+            closeConnection();
+            return DEFAULT_PARTS_TO_DELAY_INSERT;
+        }
+    }
+
+    // Most active parts in any one partition, which is what the server counts when it delays or refuses inserts;
+    // negative when they could not be read
+    @Override
+    public long getAsLong() {
+        int dot = tableName.indexOf('.');
+        String query = "SELECT max(parts) FROM (SELECT count() AS parts FROM system.parts WHERE active AND table = ? AND database = "
+                + (dot > 0 ? "?" : "currentDatabase()") + " GROUP BY partition_id)";
+        try (PreparedStatement preparedStatement = connection().prepareStatement(query)) {
+            preparedStatement.setString(1, dot > 0 ? tableName.substring(dot + 1) : tableName);
+            if (dot > 0) {
+                preparedStatement.setString(2, tableName.substring(0, dot));
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : -1;
+            }
+        } catch (Exception e) {
+            log.debug("Could not read active parts of table '{}': {}", tableName, e.getMessage());
+            closeConnection();
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        closeConnection();
+    }
+
+    private Connection connection() throws Exception {
+        if (connection == null) {
+            connection = connectionFactory.call();
+        }
+        return connection;
+    }
+
+    private void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Error closing parts probe connection: {}", e.getMessage());
+        }
+        connection = null;
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.backend.Service;
+
+import com.clickhouse.client.ClickHouseException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+// Tunes one ingest run as it goes: how many rows each insert carries and how many workers insert at once.
+// Every new part costs ClickHouse a merge, so batches grow while inserts finish well inside the latency target
+// and shrink when they run long; a pile-up of parts grows them regardless. All the batches a run can hold at
+// once stay under the memory budget, going by the measured size of its rows. Concurrency rises by one while
+// inserts are healthy and halves on a failed insert or part pressure, so a struggling server is relieved at
+// once and won back slowly. Runs with a checkpoint keep their batch size, since resuming depends on the
+// source being cut into the same batches every time.
+@Slf4j
+public class AdaptiveBatchController {
+
+    // TOO_MANY_PARTS: the server refused the insert until merges catch up
+    private static final int TOO_MANY_PARTS = 252;
+    private static final long SLOT_WAIT_MS = 100;
+
+    public record Limits(int minRows, int maxRows, long targetInsertMillis, long memoryBudgetBytes, long partsCheckIntervalMillis) {
+    }
+
+    private final Limits limits;
+    private final boolean adaptive;
+    private final boolean fixedSize;
+    // Most active parts in one partition of the target table, negative when it could not be read
+    private final LongSupplier partsProbe;
+    private final long partsHighWater;
+    private final TransferMetrics.IngestControlGauges gauges;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private volatile int batchRows;
+    private int maxConcurrency = 1;
+    private int batchesInMemory = 1;
+    private int concurrency = 1;
+    private int inFlight;
+    private int batchesSinceChange;
+    private double rowBytes;
+    // Set while the last part count was over the high-water mark; concurrency is not raised meanwhile
+    private boolean partsPressure;
+    private volatile long nextProbe = System.nanoTime();
+
+    public AdaptiveBatchController(Limits limits, boolean fixedSize, LongSupplier partsProbe, long partsHighWater,
+                                   TransferMetrics.IngestControlGauges gauges) {
+        this(limits, true, fixedSize, partsProbe, partsHighWater, gauges);
+    }
+
+    private AdaptiveBatchController(Limits limits, boolean adaptive, boolean fixedSize, LongSupplier partsProbe, long partsHighWater,
+                                    TransferMetrics.IngestControlGauges gauges) {
+        this.limits = limits;
+        this.adaptive = adaptive;
+        this.fixedSize = fixedSize;
+        this.partsProbe = partsProbe;
+        this.partsHighWater = partsHighWater;
+        this.gauges = gauges;
+    }
+
+    // The caller's batch size and every worker, unchanged for the whole run
+    public static AdaptiveBatchController fixed() {
+        return new AdaptiveBatchController(null, false, true, () -> -1, Long.MAX_VALUE,
+                new TransferMetrics.IngestControlGauges(new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong()));
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    // Called by the pipeline once it knows how many workers it runs and how many batches it may hold
+    void start(int workers, int batchesInMemory, int requestedRows) {
+        lock.lock();
+        try {
+            this.maxConcurrency = workers;
+            this.concurrency = workers;
+            this.batchesInMemory = batchesInMemory;
+            this.batchRows = adaptive && !fixedSize ? clamp(requestedRows, limits.minRows(), limits.maxRows()) : requestedRows;
+            publish();
+        } finally {
+            lock.unlock();
+        }
+        if (batchRows != requestedRows) {
+            log.info("Ingest controller starts at {} rows per batch instead of the requested {}", batchRows, requestedRows);
+        }
+    }
+
+    // The size for the next batch the producer cuts; the part count is checked from here, on the producer's thread
+    int batchRows() {
+        if (adaptive && System.nanoTime() - nextProbe >= 0) {
+            probeParts();
+        }
+        return batchRows;
+    }
+
+    // A slot if one is free right now, so a worker about to wait can first hand its connection back
+    boolean tryAcquireSlot() {
+        lock.lock();
+        try {
+            if (inFlight >= concurrency) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks a worker while the current concurrency is used up; gives up once the run is stopping
+    void acquireSlot(BooleanSupplier stopping) throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= concurrency && !stopping.getAsBoolean()) {
+                slotFreed.await(SLOT_WAIT_MS, TimeUnit.MILLISECONDS);
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void releaseSlot() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Decisions wait for as many batches as run at once since the last change, so each is judged on its effect
+    void onBatch(int rows, long bytes, long nanos) {
+        if (!adaptive || rows == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            double measured = (double) bytes / rows;
+            rowBytes = rowBytes == 0 ? measured : rowBytes * 0.8 + measured * 0.2;
+            gauges.rowBytes().set(Math.round(rowBytes));
+            batchesSinceChange++;
+
+            int cap = capRows();
+            long targetNanos = TimeUnit.MILLISECONDS.toNanos(limits.targetInsertMillis());
+            // The row size estimate drifts; only a clear overshoot of the budget is worth a change
+            if (!fixedSize && batchRows > cap + cap / 10) {
+                change(cap, concurrency, "memory budget");
+            } else if (batchesSinceChange < concurrency) {
+                return;
+            } else if (nanos > 2 * targetNanos) {
+                if (!fixedSize && batchRows > limits.minRows()) {
+                    change(Math.max(limits.minRows(), batchRows / 2), concurrency, "slow inserts");
+                } else if (concurrency > 1) {
+                    change(batchRows, concurrency - 1, "slow inserts");
+                }
+            } else if (nanos < targetNanos / 2 && rows * 2L >= batchRows) {
+                int grown = fixedSize ? batchRows : clamp(batchRows * 2L, batchRows, cap);
+                int workers = partsPressure ? concurrency : Math.min(maxConcurrency, concurrency + 1);
+                if (grown != batchRows || workers != concurrency) {
+                    change(grown, workers, "fast inserts");
+                }
+            } else if (nanos <= targetNanos && concurrency < maxConcurrency && !partsPressure) {
+                change(batchRows, concurrency + 1, "inserts within target");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A retried insert: fewer at once, and bigger batches when the server complained about parts
+    void onFailure(Throwable failure) {
+        if (!adaptive) {
+            return;
+        }
+        lock.lock();
+        try {
+            int rows = !fixedSize && isTooManyParts(failure) ? clamp(batchRows * 2L, batchRows, capRows()) : batchRows;
+            change(rows, Math.max(1, concurrency / 2), "insert failure");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void probeParts() {
+        lock.lock();
+        try {
+            // Claimed under the lock, so a slow probe is not started again by the next batch
+            if (System.nanoTime() - nextProbe < 0) {
+                return;
+            }
+            nextProbe = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limits.partsCheckIntervalMillis());
+        } finally {
+            lock.unlock();
+        }
+        long parts = partsProbe.getAsLong();
+        if (parts < 0) {
+            return;
+        }
+        gauges.parts().set(parts);
+        lock.lock();
+        try {
+            partsPressure = parts > partsHighWater;
+            if (partsPressure) {
+                int rows = fixedSize ? batchRows : clamp(batchRows * 2L, batchRows, capRows());
+                change(rows, Math.max(1, concurrency / 2), parts + " active parts in one partition");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Rows per batch that keep every batch the run may hold within the budget
+    private int capRows() {
+        if (rowBytes == 0) {
+            return limits.maxRows();
+        }
+        long rows = (long) (limits.memoryBudgetBytes() / (batchesInMemory * rowBytes));
+        return clamp(rows, limits.minRows(), limits.maxRows());
+    }
+
+    private void change(int rows, int workers, String reason) {
+        batchesSinceChange = 0;
+        if (rows == batchRows && workers == concurrency) {
+            return;
+        }
+        log.info("Ingest controller: {} -> {} rows per batch, {} -> {} concurrent inserts ({})",
+                batchRows, rows, concurrency, workers, reason);
+        batchRows = rows;
+        concurrency = workers;
+        slotFreed.signalAll();
+        publish();
+    }
+
+    private void publish() {
+        gauges.batchRows().set(batchRows);
+        gauges.concurrency().set(concurrency);
+    }
+
+    private static int clamp(long value, int min, int max) {
+        return (int) Math.max(min, Math.min(max, value));
+    }
+
+    private static boolean isTooManyParts(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getErrorCode() == TOO_MANY_PARTS) {
+                return true;
+            }
+            if (cause instanceof ClickHouseException clickHouseException && clickHouseException.getErrorCode() == TOO_MANY_PARTS) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
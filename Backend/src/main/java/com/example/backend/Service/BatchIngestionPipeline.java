@@ -0,0 +1,351 @@
+package com.example.backend.Service;
+
+import com.example.backend.DTO.IngestionStats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Two-stage ingest: the calling thread parses and converts rows into batches, a fixed set of
+// insert workers drains them through a bounded queue, each holding one BatchWriter (and with it
+// one connection) while it is allowed to insert. Written batches go back to a free list and are refilled,
+// so a run allocates at most queue capacity + workers + 1 batches however many rows it moves.
+//
+// Batches are numbered as they are cut. Ones the checkpoint already holds are dropped before the queue,
+// the rest are committed to it once written; transient insert failures are retried on a fresh writer.
+// The controller picks each batch's size as it is cut and how many workers may insert at once.
+@Slf4j
+public class BatchIngestionPipeline {
+
+    private static final RowBatch END_OF_STREAM = new RowBatch(0, 0);
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    private final Callable<BatchWriter> writerFactory;
+    private final ThreadFactory threadFactory;
+    private final int workers;
+    private final int queueCapacity;
+    private final BatchObserver observer;
+    private final IngestCheckpoint checkpoint;
+    private final RetryPolicy retryPolicy;
+    private final AdaptiveBatchController controller;
+
+    private final BlockingQueue<RowBatch> queue;
+    private final BlockingQueue<RowBatch> free;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final LongAdder rowsIngested = new LongAdder();
+    private final LongAdder batchesIngested = new LongAdder();
+    private final LongAdder insertNanos = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private long batchesSkipped;
+    private long rowsSkipped;
+    private int batchesAllocated;
+    private long waitNanos;
+
+    public BatchIngestionPipeline(Callable<BatchWriter> writerFactory, int workers, int queueCapacity) {
+        this(writerFactory, workers, queueCapacity, Thread.ofPlatform().name("ingest-worker-", 0).factory());
+    }
+
+    public BatchIngestionPipeline(Callable<BatchWriter> writerFactory, int workers, int queueCapacity, ThreadFactory threadFactory) {
+        this(writerFactory, workers, queueCapacity, threadFactory, BatchObserver.NONE);
+    }
+
+    public BatchIngestionPipeline(Callable<BatchWriter> writerFactory, int workers, int queueCapacity, ThreadFactory threadFactory,
+                                  BatchObserver observer) {
+        this(writerFactory, workers, queueCapacity, threadFactory, observer, IngestCheckpoint.transientRun(), RetryPolicy.NONE);
+    }
+
+    public BatchIngestionPipeline(Callable<BatchWriter> writerFactory, int workers, int queueCapacity, ThreadFactory threadFactory,
+                                  BatchObserver observer, IngestCheckpoint checkpoint, RetryPolicy retryPolicy) {
+        this(writerFactory, workers, queueCapacity, threadFactory, observer, checkpoint, retryPolicy, AdaptiveBatchController.fixed());
+    }
+
+    public BatchIngestionPipeline(Callable<BatchWriter> writerFactory, int workers, int queueCapacity, ThreadFactory threadFactory,
+                                  BatchObserver observer, IngestCheckpoint checkpoint, RetryPolicy retryPolicy,
+                                  AdaptiveBatchController controller) {
+        this.writerFactory = writerFactory;
+        this.threadFactory = threadFactory;
+        this.observer = observer;
+        this.checkpoint = checkpoint;
+        this.retryPolicy = retryPolicy;
+        this.controller = controller;
+        this.workers = Math.max(1, workers);
+        // Room for one end-of-stream marker per worker even after the queue has been drained on failure
+        this.queueCapacity = Math.max(queueCapacity, this.workers);
+        this.queue = new ArrayBlockingQueue<>(this.queueCapacity);
+        this.free = new ArrayBlockingQueue<>(maxBatches());
+    }
+
+    public IngestionStats run(RowReader rows, int width, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        log.info("Starting ingest pipeline with {} workers, queue capacity {}, batch size {}{}", workers, queueCapacity, batchSize,
+                controller.isAdaptive() ? " (adaptive)" : "");
+        controller.start(workers, maxBatches(), batchSize);
+        ExecutorService executor = Executors.newFixedThreadPool(workers, threadFactory);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::runWorker);
+        }
+
+        long start = System.nanoTime();
+        long sequence = 0;
+        try {
+            RowBatch batch = acquire(width);
+            while (batch != null && failure.get() == null && batch.append(rows)) {
+                if (batch.isFull()) {
+                    batch.sequence(sequence++);
+                    if (skipIfCommitted(batch)) {
+                        continue;
+                    }
+                    enqueue(batch);
+                    batch = acquire(width);
+                }
+            }
+            if (batch != null && !batch.isEmpty() && failure.get() == null) {
+                batch.sequence(sequence);
+                if (!skipIfCommitted(batch)) {
+                    enqueue(batch);
+                }
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            finish(executor);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        Throwable cause = failure.get();
+        if (cause != null) {
+            log.error("Ingest pipeline failed after {} rows: {}", rowsIngested.sum(), cause.getMessage(), cause);
+            if (checkpoint.isPersistent()) {
+                throw new RuntimeException("Batch ingestion failed; " + checkpoint.getRowsCommitted()
+                        + " rows are committed, rerun with ingestId '" + checkpoint.getIngestId() + "' to resume", cause);
+            }
+            throw new RuntimeException("Batch ingestion failed", cause);
+        }
+        checkpoint.complete();
+
+        long totalRows = rowsIngested.sum();
+        long batches = batchesIngested.sum();
+        double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+        IngestionStats stats = new IngestionStats(
+                totalRows,
+                batches,
+                workers,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos - waitNanos),
+                TimeUnit.NANOSECONDS.toMillis(insertNanos.sum()),
+                totalRows / seconds,
+                batches / seconds,
+                0,
+                List.of(),
+                checkpoint.isPersistent() ? checkpoint.getIngestId() : null,
+                batchesSkipped,
+                rowsSkipped,
+                retries.sum()
+        );
+        log.info("Ingest pipeline finished: {}", stats);
+        return stats;
+    }
+
+    // A resumed run re-reads the source from the start; batches committed last time are emptied and refilled
+    private boolean skipIfCommitted(RowBatch batch) {
+        if (!checkpoint.isCommitted(batch.sequence())) {
+            return false;
+        }
+        batchesSkipped++;
+        rowsSkipped += batch.size();
+        batch.clear();
+        return true;
+    }
+
+    // Blocks while the queue is full, which throttles parsing to the speed of the insert workers
+    private void enqueue(RowBatch batch) {
+        long start = System.nanoTime();
+        try {
+            while (!queue.offer(batch, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+        waitNanos += System.nanoTime() - start;
+    }
+
+    // A recycled batch if one is free, a new one while under the cap, otherwise waits for a worker to hand one back
+    private RowBatch acquire(int width) {
+        int batchSize = controller.batchRows();
+        RowBatch batch = free.poll();
+        if (batch != null) {
+            return fit(batch, width, batchSize);
+        }
+        if (batchesAllocated < maxBatches()) {
+            batchesAllocated++;
+            return new RowBatch(width, batchSize);
+        }
+        long start = System.nanoTime();
+        try {
+            while (batch == null && failure.get() == null) {
+                batch = free.poll(OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+        waitNanos += System.nanoTime() - start;
+        return batch == null ? null : fit(batch, width, batchSize);
+    }
+
+    // A recycled batch serves any size up to its capacity; one far too big or too small is replaced, which keeps
+    // the number of batches, and with it the run's memory, within the controller's budget
+    private static RowBatch fit(RowBatch batch, int width, int batchSize) {
+        if (batch.capacity() < batchSize || batch.capacity() > batchSize * 4L) {
+            return new RowBatch(width, batchSize);
+        }
+        batch.limit(batchSize);
+        return batch;
+    }
+
+    // Every queue slot, one batch in each worker's hands and the one being filled
+    private int maxBatches() {
+        return queueCapacity + workers + 1;
+    }
+
+    private void finish(ExecutorService executor) {
+        if (failure.get() != null) {
+            queue.clear();
+        }
+        for (int i = 0; i < workers; i++) {
+            if (!queue.offer(END_OF_STREAM)) {
+                try {
+                    queue.put(END_OF_STREAM);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure.compareAndSet(null, e);
+                    executor.shutdownNow();
+                    return;
+                }
+            }
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                log.debug("Waiting for ingest workers to drain {} queued batches", queue.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+            executor.shutdownNow();
+        }
+    }
+
+    private void runWorker() {
+        BatchWriter writer = null;
+        try {
+            writer = writerFactory.call();
+            while (true) {
+                // Taken before the batch, so workers over the current concurrency wait without holding one. A worker
+                // that has to wait closes its writer first: lowering the concurrency then frees server connections
+                // too, and the next batch the worker gets opens a new writer.
+                if (!controller.tryAcquireSlot()) {
+                    closeQuietly(writer);
+                    writer = null;
+                    controller.acquireSlot(() -> failure.get() != null);
+                }
+                RowBatch batch;
+                long nanos;
+                try {
+                    batch = queue.take();
+                    if (batch == END_OF_STREAM || failure.get() != null) {
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    writer = write(writer, batch);
+                    nanos = System.nanoTime() - start;
+                } finally {
+                    controller.releaseSlot();
+                }
+                int size = batch.size();
+                long sequence = batch.sequence();
+                if (controller.isAdaptive()) {
+                    controller.onBatch(size, batch.estimatedBytes(), nanos);
+                }
+                batch.clear();
+                free.offer(batch);
+                checkpoint.commit(sequence, size);
+                insertNanos.add(nanos);
+                observer.onBatch(size, nanos);
+                rowsIngested.add(size);
+                batchesIngested.increment();
+                log.debug("Inserted batch {} of size: {}", sequence, size);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    // The same token goes with every attempt, so a batch that did land before the error is not kept twice.
+    // A failed writer's connection is suspect, so each retry opens a new one; returns the writer that succeeded.
+    private BatchWriter write(BatchWriter writer, RowBatch batch) throws Exception {
+        String token = checkpoint.token(batch.sequence());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (writer == null) {
+                    writer = writerFactory.call();
+                }
+                writer.write(batch, token);
+                return writer;
+            } catch (Exception e) {
+                if (attempt >= retryPolicy.maxAttempts() || !retryPolicy.isTransient(e) || failure.get() != null) {
+                    throw e;
+                }
+                long backoff = retryPolicy.backoffMillis(attempt);
+                log.warn("Insert of batch {} failed (attempt {} of {}), retrying in {} ms: {}",
+                        batch.sequence(), attempt, retryPolicy.maxAttempts(), backoff, e.getMessage());
+                retries.increment();
+                controller.onFailure(e);
+                closeQuietly(writer);
+                writer = null;
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    private static void closeQuietly(BatchWriter writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (SQLException | RuntimeException e) {
+            log.debug("Error closing batch writer: {}", e.getMessage());
+        }
+    }
+
+    // Told about every inserted batch from the worker that wrote it
+    @FunctionalInterface
+    public interface BatchObserver {
+
+        BatchObserver NONE = (rows, nanos) -> {
+        };
+
+        void onBatch(int rows, long nanos);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.backend.Service;
+
+import java.sql.SQLException;
+
+// One insert worker's sink for converted batches; owns its connection until closed
+public interface BatchWriter extends AutoCloseable {
+
+    // The token is sent as insert_deduplication_token, so a batch written twice is only kept once by tables
+    // that deduplicate inserts
+    void write(RowBatch batch, String deduplicationToken) throws Exception;
+
+    // Narrower than AutoCloseable's, which would have every try-with-resources handle InterruptedException
+    @Override
+    void close() throws SQLException;
+}
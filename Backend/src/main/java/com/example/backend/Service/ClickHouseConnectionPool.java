@@ -0,0 +1,210 @@
+package com.example.backend.Service;
+
+import com.clickhouse.jdbc.ClickHouseDataSource;
+import com.example.backend.DTO.PoolStatsDTO;
+import com.example.backend.Model.ClickHouseConnection;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+@Component
+@Slf4j
+public class ClickHouseConnectionPool {
+
+    @Value("${clickhouse.pool.max-size:10}")
+    private int maxSize = 10;
+
+    @Value("${clickhouse.pool.min-idle:1}")
+    private int minIdle;
+
+    @Value("${clickhouse.pool.idle-timeout-ms:300000}")
+    private long idleTimeoutMs;
+
+    @Value("${clickhouse.pool.max-lifetime-ms:1800000}")
+    private long maxLifetimeMs;
+
+    @Value("${clickhouse.pool.keepalive-ms:120000}")
+    private long keepaliveMs;
+
+    @Value("${clickhouse.pool.connection-timeout-ms:30000}")
+    private long connectionTimeoutMs;
+
+    @Autowired
+    private TransferMetrics metrics = TransferMetrics.noop();
+
+    private final Map<PoolKey, PooledSource> pools = new ConcurrentHashMap<>();
+
+    public Connection getConnection(ClickHouseConnection settings) throws SQLException {
+        PooledSource pool = getOrCreate(settings);
+        try {
+            return pool.dataSource.getConnection();
+        } catch (SQLException e) {
+            // Closed between lookup and use because no session pointed at it any more; a fresh pool takes over
+            if (!pool.dataSource.isClosed()) {
+                throw e;
+            }
+            pools.remove(PoolKey.of(settings), pool);
+            return getOrCreate(settings).dataSource.getConnection();
+        }
+    }
+
+    // Connections one target's pool hands out at once
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // A connection of its own for a caller that must not queue behind the pool, such as a probe watching a run
+    // that holds every pooled connection; the caller closes it
+    public Connection openUnpooled(ClickHouseConnection settings) throws SQLException {
+        PoolKey key = PoolKey.of(settings);
+        return new ClickHouseDataSource(url(key)).getConnection(key.username(), key.password());
+    }
+
+    // Closes pools no session points at any more once their last borrowed connection is back
+    public void closeUnused(Collection<ClickHouseConnection> live) {
+        Set<PoolKey> keep = live.stream().map(PoolKey::of).collect(Collectors.toSet());
+        pools.forEach((key, pool) -> {
+            if (!keep.contains(key) && pool.dataSource.getHikariPoolMXBean().getActiveConnections() == 0
+                    && pools.remove(key, pool)) {
+                log.info("Closing unused ClickHouse connection pool '{}'", pool.dataSource.getPoolName());
+                pool.dataSource.close();
+            }
+        });
+    }
+
+    public PoolStatsDTO getStats(ClickHouseConnection settings) {
+        PooledSource pool = pools.get(PoolKey.of(settings));
+        if (pool == null) {
+            return null;
+        }
+        HikariPoolMXBean mxBean = pool.dataSource.getHikariPoolMXBean();
+        PoolMetricsTracker tracker = pool.tracker;
+        long acquires = tracker.acquireCount.sum();
+        double uptimeMinutes = Math.max(System.nanoTime() - tracker.startedAt, 1) / (double) TimeUnit.MINUTES.toNanos(1);
+        return new PoolStatsDTO(
+                pool.dataSource.getPoolName(),
+                pool.dataSource.getMaximumPoolSize(),
+                mxBean.getActiveConnections(),
+                mxBean.getIdleConnections(),
+                mxBean.getTotalConnections(),
+                mxBean.getThreadsAwaitingConnection(),
+                tracker.connectionsCreated.sum(),
+                tracker.connectionsCreated.sum() / uptimeMinutes,
+                acquires,
+                acquires == 0 ? 0 : tracker.acquireNanos.sum() / (double) acquires / 1_000_000,
+                tracker.maxAcquireNanos.get() / 1_000_000.0,
+                tracker.timeouts.sum()
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pools.values().forEach(pool -> pool.dataSource.close());
+        pools.clear();
+    }
+
+    private PooledSource getOrCreate(ClickHouseConnection settings) {
+        PoolKey key = PoolKey.of(settings);
+        PooledSource pool = pools.get(key);
+        if (pool != null) {
+            return pool;
+        }
+        // Build outside the map so a slow handshake never holds a bin lock
+        PooledSource created = createPool(key);
+        pool = pools.putIfAbsent(key, created);
+        if (pool != null) {
+            created.dataSource.close();
+            return pool;
+        }
+        return created;
+    }
+
+    private PooledSource createPool(PoolKey key) {
+        String url = url(key);
+        log.info("Creating ClickHouse connection pool for URL: {} (max size {})", url, maxSize);
+        try {
+            String poolName = "clickhouse-" + key.username() + "@" + key.host() + ":" + key.port();
+            PoolMetricsTracker tracker = new PoolMetricsTracker(metrics.connectionAcquireTimer(poolName));
+            HikariConfig config = new HikariConfig();
+            config.setPoolName(poolName);
+            config.setDataSource(new ClickHouseDataSource(url));
+            config.setUsername(key.username());
+            config.setPassword(key.password());
+            config.setMaximumPoolSize(maxSize);
+            config.setMinimumIdle(Math.min(minIdle, maxSize));
+            config.setIdleTimeout(idleTimeoutMs);
+            config.setMaxLifetime(maxLifetimeMs);
+            config.setKeepaliveTime(keepaliveMs);
+            config.setConnectionTimeout(connectionTimeoutMs);
+            config.setMetricsTrackerFactory((name, poolStats) -> tracker);
+            return new PooledSource(new HikariDataSource(config), tracker);
+        } catch (SQLException e) {
+            log.error("Failed to create ClickHouse connection pool: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to create ClickHouse connection pool", e);
+        }
+    }
+
+    private static String url(PoolKey key) {
+        return String.format("jdbc:clickhouse://%s:%d/%s", key.host(), key.port(), key.database());
+    }
+
+    private record PoolKey(String host, int port, String database, String username, String password) {
+        static PoolKey of(ClickHouseConnection settings) {
+            return new PoolKey(settings.getHost(), settings.getPort(), settings.getDatabase(),
+                    settings.getUsername(), settings.getPassword());
+        }
+    }
+
+    private record PooledSource(HikariDataSource dataSource, PoolMetricsTracker tracker) {
+    }
+
+    private static class PoolMetricsTracker implements IMetricsTracker {
+        private final long startedAt = System.nanoTime();
+        private final Timer acquireTimer;
+        private final LongAdder connectionsCreated = new LongAdder();
+        private final LongAdder acquireCount = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder timeouts = new LongAdder();
+
+        PoolMetricsTracker(Timer acquireTimer) {
+            this.acquireTimer = acquireTimer;
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            connectionsCreated.increment();
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireCount.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+            acquireTimer.record(elapsedAcquiredNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+    }
+}
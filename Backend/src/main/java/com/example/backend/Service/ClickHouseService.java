@@ -1,51 +1,204 @@
 package com.example.backend.Service;
 
-import com.clickhouse.jdbc.ClickHouseDataSource;
+import com.clickhouse.client.ClickHouseException;
+import com.clickhouse.client.ClickHouseRequest;
+import com.clickhouse.client.ClickHouseResponse;
+import com.clickhouse.data.ClickHouseFormat;
+import com.clickhouse.data.ClickHouseRecord;
+import com.clickhouse.jdbc.ClickHouseStatement;
+import com.example.backend.DTO.IngestionStats;
+import com.example.backend.DTO.MetadataCacheStatsDTO;
+import com.example.backend.DTO.PoolStatsDTO;
 import com.example.backend.Model.ClickHouseConnection;
+import com.example.backend.Model.ExportCompression;
+import com.example.backend.Model.FileFormat;
+import com.example.backend.Model.IngestOptions;
+import com.example.backend.Model.InsertMode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Setter
 @Service
 @Slf4j
 public class ClickHouseService {
 
-    @Autowired
+    // A fixed target for a service wired by hand (benchmarks); in the server each request uses its session's profile
     private ClickHouseConnection clickHouseConnection;
 
+    @Autowired
+    private ConnectionRegistry connectionRegistry = new ConnectionRegistry();
+
+    private static final int EXPORT_BUFFER_SIZE = 1 << 20;
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final int PROGRESS_INTERVAL = 1024;
+    // Pooled connections a transfer leaves free for the session's metadata queries
+    private static final int RESERVED_CONNECTIONS = 2;
+    private static final int CONNECTION_CHECK_TIMEOUT_SECONDS = 5;
+    // Returned by exports whose rows are not counted, such as Parquet and Arrow files encoded by the server
+    static final long UNCOUNTED_ROWS = -1;
+
+    @Autowired
+    private ClickHouseConnectionPool connectionPool;
+
+    @Value("${clickhouse.ingest.workers:0}")
+    private int ingestWorkers;
+
+    @Value("${clickhouse.ingest.queue-capacity:0}")
+    private int ingestQueueCapacity;
+
+    @Value("${clickhouse.ingest.insert-mode:JDBC_BATCH}")
+    private InsertMode defaultInsertMode;
+
+    @Value("${clickhouse.ingest.retry.max-attempts:4}")
+    private int retryMaxAttempts;
+
+    @Value("${clickhouse.ingest.retry.initial-backoff-ms:500}")
+    private long retryInitialBackoffMs;
+
+    @Value("${clickhouse.ingest.retry.max-backoff-ms:10000}")
+    private long retryMaxBackoffMs;
+
+    @Value("${clickhouse.ingest.dedup-window:1000}")
+    private int dedupWindow;
+
+    @Value("${clickhouse.ingest.adaptive.enabled:false}")
+    private boolean adaptiveBatching;
+
+    @Value("${clickhouse.ingest.adaptive.min-batch-rows:1000}")
+    private int adaptiveMinRows;
+
+    @Value("${clickhouse.ingest.adaptive.max-batch-rows:1000000}")
+    private int adaptiveMaxRows;
+
+    @Value("${clickhouse.ingest.adaptive.target-insert-ms:2000}")
+    private long adaptiveTargetInsertMs;
+
+    @Value("${clickhouse.ingest.adaptive.memory-budget-mb:256}")
+    private long adaptiveMemoryBudgetMb;
+
+    @Value("${clickhouse.ingest.adaptive.parts-check-interval-ms:5000}")
+    private long adaptivePartsCheckIntervalMs;
+
+    @Autowired
+    private IngestCheckpointStore checkpointStore = new IngestCheckpointStore();
+
+    @Autowired
+    private TypeInferenceService typeInferenceService;
+
+    @Autowired
+    private SchemaMetadataCache metadataCache;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Autowired
+    private TransferMetrics metrics = TransferMetrics.noop();
+
     public Connection getConnection() {
+        return getConnection(settings());
+    }
+
+    private Connection getConnection(ClickHouseConnection settings) {
         try {
-            String url = String.format("jdbc:clickhouse://%s:%d/%s",
-                    clickHouseConnection.getHost(),
-                    clickHouseConnection.getPort(),
-                    clickHouseConnection.getDatabase());
-            log.info("Connecting to ClickHouse at URL: {}", url);
-            return new ClickHouseDataSource(url).getConnection(
-                    clickHouseConnection.getUsername(),
-                    clickHouseConnection.getPassword()
-            );
+            return connectionPool.getConnection(settings);
+        } catch (SQLException e) {
+            log.error("Failed to establish ClickHouse connection: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to establish ClickHouse connection", e);
+        }
+    }
+
+    // The credentials are tried on their own pool before the session is pointed at them, so a failed connect
+    // leaves the session's previous target in place
+    public void connect(String tenant, ClickHouseConnection credentials) {
+        connectionRegistry.connect(tenant, credentials, this::checkConnection);
+    }
+
+    private void checkConnection(ClickHouseConnection credentials) {
+        try (Connection connection = getConnection(credentials)) {
+            if (!connection.isValid(CONNECTION_CHECK_TIMEOUT_SECONDS)) {
+                throw new SQLException("Server did not answer within " + CONNECTION_CHECK_TIMEOUT_SECONDS + " seconds");
+            }
+            log.info("Connected to ClickHouse at {}:{}/{}", credentials.getHost(), credentials.getPort(), credentials.getDatabase());
         } catch (SQLException e) {
             log.error("Failed to establish ClickHouse connection: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to establish ClickHouse connection", e);
         }
     }
 
+    // Names the session's server and database, for state kept per target outside ClickHouse
+    public String targetName() {
+        ClickHouseConnection settings = settings();
+        return settings.getHost() + ":" + settings.getPort() + "/" + settings.getDatabase();
+    }
+
+    // Threads that each hold a pooled connection for a whole transfer; past the pool size they would wait out its
+    // connection timeout and fail the run
+    public int connectionBudget(int requested) {
+        int budget = Math.max(1, Math.min(requested, connectionPool.getMaxSize() - RESERVED_CONNECTIONS));
+        if (budget < requested) {
+            log.info("Using {} connections instead of {}, the pool holds {}", budget, requested, connectionPool.getMaxSize());
+        }
+        return budget;
+    }
+
+    public PoolStatsDTO getPoolStats() {
+        return connectionPool.getStats(settings());
+    }
+
+    private ClickHouseConnection settings() {
+        ConnectionProfile profile = connectionRegistry.current();
+        if (profile != null) {
+            return profile.getSettings();
+        }
+        if (clickHouseConnection == null) {
+            throw new IllegalStateException("Not connected to ClickHouse; connect first");
+        }
+        return clickHouseConnection;
+    }
+
     public void createTableDynamically(String tableName, Map<String, String> columnDefinitions) throws Exception {
+        createTableDynamically(tableName, columnDefinitions, null, null);
+    }
+
+    public void createTableDynamically(String tableName, Map<String, String> columnDefinitions, String orderBy, String partitionBy) throws Exception {
+        createTableDynamically(tableName, columnDefinitions, orderBy, partitionBy, false);
+    }
+
+    // With deduplicate, the MergeTree remembers recent insert tokens so a replayed batch is dropped
+    public void createTableDynamically(String tableName, Map<String, String> columnDefinitions, String orderBy, String partitionBy,
+                                       boolean deduplicate) throws Exception {
         StringBuilder createTableQuery = new StringBuilder("CREATE TABLE IF NOT EXISTS " + tableName + " (");
 
         for (Map.Entry<String, String> entry : columnDefinitions.entrySet()) {
@@ -54,7 +207,22 @@ public class ClickHouseService {
 
         // Remove the trailing comma and space, and add the engine definition
         createTableQuery.setLength(createTableQuery.length() - 2);
-        createTableQuery.append(") ENGINE = MergeTree() ORDER BY tuple();");
+        createTableQuery.append(") ENGINE = MergeTree()");
+        if (hasText(partitionBy)) {
+            createTableQuery.append(" PARTITION BY ").append(checkKeyExpression(partitionBy));
+        }
+        createTableQuery.append(" ORDER BY ").append(hasText(orderBy) ? "(" + checkKeyExpression(orderBy) + ")" : "tuple()");
+        List<String> settings = new ArrayList<>();
+        if (usesNullableKey(columnDefinitions, orderBy, partitionBy)) {
+            settings.add("allow_nullable_key = 1");
+        }
+        if (deduplicate && dedupWindow > 0) {
+            settings.add("non_replicated_deduplication_window = " + dedupWindow);
+        }
+        if (!settings.isEmpty()) {
+            createTableQuery.append(" SETTINGS ").append(String.join(", ", settings));
+        }
+        createTableQuery.append(";");
 
         try (Connection connection = getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(createTableQuery.toString())) {
@@ -63,6 +231,8 @@ public class ClickHouseService {
         } catch (SQLException e) {
             log.error("Error creating table '{}': {}", tableName, e.getMessage(), e);
             throw new RuntimeException("Error creating table", e);
+        } finally {
+            metadataCache.invalidateTable(settings(), tableName);
         }
     }
 
@@ -113,57 +283,132 @@ public class ClickHouseService {
             throw new IllegalArgumentException("No data to save");
         }
 
-        // Helper to reformat DateTime values
-        DateTimeFormatter inputFormatter = DateTimeFormatter.ISO_DATE_TIME; // e.g., 2025-04-16T01:47:29
-        DateTimeFormatter clickhouseFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"); // e.g., 2025-04-16 01:47:29
-
         // Extract column definitions from the first row
-        Map<String, String> firstRow = rows.get(0);
-        Map<String, String> columnDefinitions = firstRow.keySet().stream()
-                .collect(Collectors.toMap(
-                        column -> column,
-                        column -> "String" // Defaulting all columns to String; adjust as needed
-                ));
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
 
         // Create the table dynamically
-        createTableDynamically(tableName, columnDefinitions);
+        createTableDynamically(tableName, buildColumnDefinitions(columns));
 
         // Dynamically build the SQL query
-        String columns = String.join(", ", firstRow.keySet());
-        String placeholders = String.join(", ", firstRow.keySet().stream().map(col -> "?").toList());
-        String insertQuery = "INSERT INTO " + tableName + " (" + columns + ") VALUES (" + placeholders + ")";
+        String insertQuery = buildInsertQuery(tableName, columns);
         log.info("Insert query: {}", insertQuery);
 
+        ColumnTransformer transformer = ColumnTransformer.compile(columns, List.of());
         try (Connection connection = getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(insertQuery)) {
 
+            // One cell buffer for the whole batch; the driver copies each value as it is bound
+            String[] values = new String[columns.size()];
             for (Map<String, String> row : rows) {
-                int index = 1;
-                for (Map.Entry<String, String> entry : row.entrySet()) {
-                    String value = entry.getValue();
-
-                    // Reformat DateTime values if necessary
-                    if (entry.getKey().equalsIgnoreCase("dob")) { // Adjust column name as needed
-                        try {
-                            value = LocalDateTime.parse(value, inputFormatter).format(clickhouseFormatter);
-                        } catch (Exception e) {
-                            log.warn("Invalid DateTime format for value '{}', skipping reformatting", value);
-                        }
-                    }
-
-                    preparedStatement.setString(index++, value);
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = row.get(columns.get(i));
+                }
+                transformer.apply(values, 0);
+                for (int i = 0; i < values.length; i++) {
+                    preparedStatement.setString(i + 1, values[i]);
                 }
                 preparedStatement.addBatch();
             }
 
+            long start = System.nanoTime();
             preparedStatement.executeBatch();
+            metrics.batchObserver(tableName, "jdbc_batch").onBatch(rows.size(), System.nanoTime() - start);
         } catch (SQLException e) {
             log.error("Error saving data to table '{}': {}", tableName, e.getMessage(), e);
             throw new RuntimeException("Error saving data to table", e);
         }
+        logTransformFailures(tableName, transformer);
+    }
+
+    private void logTransformFailures(String tableName, ColumnTransformer transformer) {
+        if (transformer.getFailures() > 0) {
+            log.warn("{} values in table '{}' could not be transformed and were kept as-is, e.g. {}",
+                    transformer.getFailures(), tableName, transformer.getFailureSamples());
+        }
+    }
+
+    private Map<String, String> buildColumnDefinitions(List<String> columns) {
+        Map<String, String> columnDefinitions = new LinkedHashMap<>();
+        for (String column : columns) {
+            columnDefinitions.put(column, "String"); // Defaulting all columns to String; adjust as needed
+        }
+        return columnDefinitions;
+    }
+
+    private String buildInsertQuery(String tableName, List<String> columns) {
+        String placeholders = String.join(", ", columns.stream().map(col -> "?").toList());
+        return "INSERT INTO " + tableName + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")";
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private static String checkKeyExpression(String expression) {
+        if (expression.contains(";") || expression.contains("--") || expression.contains("/*")) {
+            throw new IllegalArgumentException("Invalid table key expression: " + expression);
+        }
+        return expression.trim();
+    }
+
+    private static boolean usesNullableKey(Map<String, String> columnDefinitions, String orderBy, String partitionBy) {
+        String keys = (hasText(orderBy) ? orderBy : "") + " " + (hasText(partitionBy) ? partitionBy : "");
+        for (Map.Entry<String, String> entry : columnDefinitions.entrySet()) {
+            if (entry.getValue().contains("Nullable(")
+                    && Pattern.compile("\\b" + Pattern.quote(entry.getKey()) + "\\b").matcher(keys).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Conversions the table's column types require, resolved once per ingest run and applied by column index
+    private record ValueLayout(UnaryOperator<String>[] converters) {
+
+        private static final UnaryOperator<String> BLANK_AS_NULL = value -> value.isBlank() ? null : value;
+        private static final UnaryOperator<String> ISO_DATE_TIME = value ->
+                value.length() > 10 && value.charAt(10) == 'T' ? value.substring(0, 10) + ' ' + value.substring(11) : value;
+
+        static ValueLayout of(List<String> columns, Map<String, String> tableTypes) {
+            UnaryOperator<String>[] converters = ColumnTransformer.functionArray(columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                String type = tableTypes.getOrDefault(columns.get(i), "String");
+                String baseType = type.replace("LowCardinality(", "").replace("Nullable(", "");
+                if (type.contains("Nullable(") || !(baseType.startsWith("String") || baseType.startsWith("FixedString"))) {
+                    converters[i] = chain(converters[i], BLANK_AS_NULL);
+                }
+                if (baseType.startsWith("DateTime")) {
+                    converters[i] = chain(converters[i], ISO_DATE_TIME);
+                }
+            }
+            return new ValueLayout(converters);
+        }
+
+        void convert(String[] cells, int offset) {
+            for (int i = 0; i < converters.length; i++) {
+                String value = cells[offset + i];
+                if (value != null && converters[i] != null) {
+                    cells[offset + i] = converters[i].apply(value);
+                }
+            }
+        }
+
+        private static UnaryOperator<String> chain(UnaryOperator<String> first, UnaryOperator<String> then) {
+            if (first == null) {
+                return then;
+            }
+            return value -> {
+                String converted = first.apply(value);
+                return converted == null ? null : then.apply(converted);
+            };
+        }
     }
 
     public List<String> getTables() throws Exception {
+        return metadataCache.getTables(settings(), this::loadTables);
+    }
+
+    private List<String> loadTables() {
         String query = "SHOW TABLES";
         try (Connection connection = getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(query);
@@ -186,56 +431,327 @@ public class ClickHouseService {
     }
 
     public List<String> getTableColumns(String tableName) throws Exception {
-        String query = "DESCRIBE TABLE " + tableName;
+        List<String> columns = new ArrayList<>(describeTable(tableName).keySet());
+        if (columns.isEmpty()) {
+            log.warn("No columns found for table '{}'", tableName);
+        }
+        return columns;
+    }
+
+    // Reloads every table and column of the current database from system.columns in a single round trip
+    public void refreshMetadata() {
+        String query = "SELECT table, name, type FROM system.columns WHERE database = currentDatabase() ORDER BY table, position";
         try (Connection connection = getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(query);
              ResultSet resultSet = preparedStatement.executeQuery()) {
 
-            List<String> columns = new ArrayList<>();
+            Map<String, Map<String, String>> schema = new LinkedHashMap<>();
             while (resultSet.next()) {
-                columns.add(resultSet.getString(1)); // Column name is in the first column of the result
-            }
-            if (columns.isEmpty()) {
-                log.warn("No columns found for table '{}'", tableName);
-            } else {
-                log.info("Fetched columns for table '{}': {}", tableName, columns);
+                schema.computeIfAbsent(resultSet.getString(1), table -> new LinkedHashMap<>())
+                        .put(resultSet.getString(2), resultSet.getString(3));
             }
-            return columns;
+            metadataCache.replaceAll(settings(), schema);
         } catch (SQLException e) {
-            log.error("Error fetching columns for table '{}': {}", tableName, e.getMessage(), e);
-            throw new RuntimeException("Error fetching columns", e);
+            log.error("Error refreshing schema metadata: {}", e.getMessage(), e);
+            throw new RuntimeException("Error refreshing schema metadata", e);
         }
     }
 
-    public int ingestData(Stream<Map<String, String>> rowsStream, String tableName, int batchSize) {
-        List<Map<String, String>> batch = new ArrayList<>();
-        AtomicInteger totalRecords = new AtomicInteger();
 
-        rowsStream.forEach(row -> {
-            batch.add(row);
-            if (batch.size() == batchSize) {
-                totalRecords.addAndGet(ingestBatch(batch, tableName));
-                batch.clear();
-            }
-        });
+    public MetadataCacheStatsDTO getMetadataCacheStats() {
+        return metadataCache.getStats();
+    }
+
+    public IngestionStats ingestData(Stream<Map<String, String>> rowsStream, String tableName, int batchSize) {
+        return ingestData(rowsStream, tableName, IngestOptions.ofBatchSize(batchSize));
+    }
 
-        // Process remaining records
-        if (!batch.isEmpty()) {
-            totalRecords.addAndGet(ingestBatch(batch, tableName));
+    // Keyed rows are bound to the first row's columns and read by position from then on
+    public IngestionStats ingestData(Stream<Map<String, String>> rowsStream, String tableName, IngestOptions options) {
+        Iterator<Map<String, String>> rows = rowsStream.iterator();
+        if (!rows.hasNext()) {
+            return IngestionStats.empty();
         }
+        Map<String, String> first = rows.next();
+        List<String> columns = new ArrayList<>(first.keySet());
+        Iterator<Map<String, String>> allRows = Stream.concat(Stream.of(first), StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED), false)).iterator();
+        return ingestRows(columns, RowReader.fromMaps(columns, allRows), tableName, options);
+    }
 
-        return totalRecords.get();
+    // A JSON array of objects or NDJSON, parsed as the pipeline pulls rows: memory is bounded by the batches in
+    // flight rather than by the size of the body
+    public IngestionStats ingestJson(InputStream body, String tableName, IngestOptions options) {
+        ProgressListener counted = metrics.table(tableName, TransferMetrics.INGEST).byteListener();
+        try (JsonRowReader reader = JsonRowReader.open(JSON, new ProgressInputStream(body, counted))) {
+            if (!reader.hasRows()) {
+                return IngestionStats.empty();
+            }
+            if (reader.getColumns().isEmpty()) {
+                throw new IllegalArgumentException("The first JSON object has no fields");
+            }
+            return ingestRows(reader.getColumns(), reader, tableName, options);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON body: " + e.getOriginalMessage(), e);
+        } catch (IOException e) {
+            log.error("Error reading JSON body for table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Error reading JSON body: " + e.getMessage(), e);
+        }
     }
 
-    private int ingestBatch(List<Map<String, String>> batch, String tableName) {
+    public IngestionStats ingestRows(List<String> sourceColumns, RowReader rows, String tableName, IngestOptions options) {
+        // Request transforms run first, so renames name the table's columns and inference sees the cleaned values
+        ColumnTransformer transformer = ColumnTransformer.compile(sourceColumns, options.getTransforms());
+        List<String> columns = transformer.getTargetColumns();
+        RowReader transformed = (cells, offset) -> {
+            if (!rows.next(cells, offset)) {
+                return false;
+            }
+            transformer.apply(cells, offset);
+            return true;
+        };
+
+        try (IngestCheckpoint checkpoint = checkpointStore.open(options.getIngestId(), tableName, columns, options.getBatchSize())) {
+            if (checkpoint.isCompleted()) {
+                log.info("Ingest '{}' into table '{}' already completed, nothing to do", checkpoint.getIngestId(), tableName);
+                IngestionStats stats = IngestionStats.empty();
+                stats.setIngestId(checkpoint.getIngestId());
+                stats.setRowsSkipped(checkpoint.getRowsCommitted());
+                return stats;
+            }
+            return ingestRows(columns, transformed, transformer, tableName, options, checkpoint);
+        }
+    }
+
+    private IngestionStats ingestRows(List<String> columns, RowReader transformed, ColumnTransformer transformer, String tableName,
+                                      IngestOptions options, IngestCheckpoint checkpoint) {
+        // The leading rows fix the column types for the whole run when inferring
+        int sampleSize = options.isInferTypes() ? Math.max(1, typeInferenceService.getSampleRows()) : 1;
+        RowBatch sample = new RowBatch(columns.size(), sampleSize);
+        if (sample.fill(transformed) == 0) {
+            return IngestionStats.empty();
+        }
+        Map<String, String> columnDefinitions = options.isInferTypes()
+                ? typeInferenceService.inferColumnTypes(columns, sample)
+                : buildColumnDefinitions(columns);
         try {
-            log.info("Ingesting batch of size: {}", batch.size());
-            saveDyanamicData(batch, tableName);
-            return batch.size();
+            createTableDynamically(tableName, columnDefinitions, options.getOrderBy(), options.getPartitionBy(), checkpoint.isPersistent());
         } catch (Exception e) {
-            log.error("Error ingesting batch: {}", e.getMessage(), e);
+            log.error("Error preparing table '{}' for ingestion: {}", tableName, e.getMessage(), e);
             throw new RuntimeException("Batch ingestion failed", e);
         }
+
+        Map<String, String> tableTypes = describeTable(tableName);
+        InsertMode insertMode = options.getInsertMode() != null ? options.getInsertMode() : defaultInsertMode;
+        Callable<BatchWriter> writerFactory = createWriterFactory(tableName, columns, tableTypes, insertMode);
+
+        ValueLayout layout = ValueLayout.of(columns, tableTypes);
+        RowReader source = sample.replayThen(transformed);
+        RowReader converted = (cells, offset) -> {
+            if (!source.next(cells, offset)) {
+                return false;
+            }
+            layout.convert(cells, offset);
+            return true;
+        };
+
+        int workers = connectionBudget(ingestWorkers > 0 ? ingestWorkers : Runtime.getRuntime().availableProcessors());
+        int queueCapacity = ingestQueueCapacity > 0 ? ingestQueueCapacity : workers * 2;
+        BatchIngestionPipeline.BatchObserver observer = metrics.batchObserver(tableName, insertMode.name().toLowerCase());
+        RetryPolicy retryPolicy = new RetryPolicy(Math.max(1, retryMaxAttempts), retryInitialBackoffMs, retryMaxBackoffMs);
+        IngestionStats stats;
+        try (ActivePartsProbe partsProbe = createPartsProbe(tableName)) {
+            stats = new BatchIngestionPipeline(writerFactory, workers, queueCapacity, workerThreads.factory("ingest-worker-"),
+                    observer, checkpoint, retryPolicy, createController(tableName, checkpoint, partsProbe))
+                    .run(converted, columns.size(), options.getBatchSize());
+        }
+        stats.setTransformFailures(transformer.getFailures());
+        stats.setTransformFailureSamples(transformer.getFailureSamples());
+        logTransformFailures(tableName, transformer);
+        return stats;
+    }
+
+    // A checkpointed run has to cut its source the same way on every attempt, so only its concurrency adapts
+    private AdaptiveBatchController createController(String tableName, IngestCheckpoint checkpoint, ActivePartsProbe partsProbe) {
+        if (!adaptiveBatching) {
+            return AdaptiveBatchController.fixed();
+        }
+        AdaptiveBatchController.Limits limits = new AdaptiveBatchController.Limits(
+                Math.max(1, adaptiveMinRows),
+                Math.max(adaptiveMinRows, adaptiveMaxRows),
+                adaptiveTargetInsertMs,
+                adaptiveMemoryBudgetMb << 20,
+                adaptivePartsCheckIntervalMs);
+        // Inserts are throttled by the server at parts_to_delay_insert; backing off at half of it keeps clear
+        long partsHighWater = Math.max(1, partsProbe.partsToDelayInsert() / 2);
+        return new AdaptiveBatchController(limits, checkpoint.isPersistent(), partsProbe, partsHighWater, metrics.ingestControl(tableName));
+    }
+
+    private ActivePartsProbe createPartsProbe(String tableName) {
+        ClickHouseConnection target = settings();
+        return new ActivePartsProbe(() -> connectionPool.openUnpooled(target), tableName);
+    }
+
+    // Writers are opened on the pipeline's worker threads, so the target is resolved here on the caller's
+    private Callable<BatchWriter> createWriterFactory(String tableName, List<String> columns, Map<String, String> tableTypes, InsertMode insertMode) {
+        ClickHouseConnection target = settings();
+        if (insertMode == InsertMode.ROW_BINARY) {
+            // Encoders follow the live table definition, which may predate this request
+            List<String> columnTypes = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                String type = tableTypes.get(column);
+                if (type == null) {
+                    throw new IllegalArgumentException("Column '" + column + "' does not exist in table '" + tableName + "'");
+                }
+                columnTypes.add(type);
+            }
+            RowBinaryEncoder encoder = new RowBinaryEncoder(columnTypes, getServerTimeZone());
+            String insertQuery = "INSERT INTO " + tableName + " (" + String.join(", ", columns) + ") FORMAT RowBinary";
+            log.info("Insert query: {}", insertQuery);
+            return () -> new RowBinaryBatchWriter(getConnection(target), insertQuery, encoder);
+        }
+        String insertQuery = buildInsertQuery(tableName, columns);
+        log.info("Insert query: {}", insertQuery);
+        return () -> new JdbcBatchWriter(getConnection(target), insertQuery);
+    }
+
+    public void ensureTable(String tableName, List<String> columns, String orderBy, String partitionBy) throws Exception {
+        createTableDynamically(tableName, buildColumnDefinitions(columns), orderBy, partitionBy);
+    }
+
+    // Forwards an already-encoded body (CSVWithNames, RowBinary, ...) to ClickHouse without decoding it in the JVM
+    public long insertRaw(String tableName, InputStream data, ClickHouseFormat format) {
+        return insertRaw(tableName, data, format, Map.of());
+    }
+
+    // Settings tell the server how to read the body, e.g. format_csv_delimiter
+    public long insertRaw(String tableName, InputStream data, ClickHouseFormat format, Map<String, String> settings) {
+        TransferMetrics.TableMeters meters = metrics.table(tableName, TransferMetrics.INGEST);
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement()) {
+            log.info("Streaming raw {} data into table '{}'", format, tableName);
+            long start = System.nanoTime();
+            ClickHouseRequest.Mutation request = statement.unwrap(ClickHouseStatement.class).write();
+            settings.forEach(request::set);
+            try (ClickHouseResponse response = request
+                    .query("INSERT INTO " + tableName + " FORMAT " + format.name())
+                    .format(format)
+                    .data(new ProgressInputStream(data, meters.listener()))
+                    .executeAndWait()) {
+                long rows = response.getSummary().getWrittenRows();
+                metrics.batchInsertTimer(tableName, "raw").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                meters.rows().increment(rows);
+                return rows;
+            }
+        } catch (SQLException | ClickHouseException e) {
+            log.error("Error streaming raw data into table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Error streaming raw data into table", e);
+        }
+    }
+
+    // Parses a sample of the body with the server's own reader into the given column types, so rows that the
+    // insert would reject fail here first. NOT ignore(*) makes every column be read: a bare count() may be
+    // answered without parsing any values.
+    public long validateSample(ClickHouseFormat format, Map<String, String> columnTypes, byte[] sample, Map<String, String> settings) {
+        String structure = columnTypes.entrySet().stream()
+                .map(column -> column.getKey() + " " + column.getValue())
+                .collect(Collectors.joining(", "));
+        String query = "SELECT count() FROM format(" + format.name() + ", " + toStringLiteral(structure) + ", "
+                + toStringLiteral(sample) + ") WHERE NOT ignore(*)";
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement()) {
+            ClickHouseRequest<?> request = statement.unwrap(ClickHouseStatement.class).getRequest()
+                    .set("max_query_size", String.valueOf(query.length() + 1024));
+            settings.forEach(request::set);
+            try (ClickHouseResponse response = request.query(query).executeAndWait()) {
+                long rows = 0;
+                for (ClickHouseRecord record : response.records()) {
+                    rows = record.getValue(0).asLong();
+                }
+                return rows;
+            }
+        } catch (SQLException | ClickHouseException e) {
+            // Anything but a lost connection or an overloaded server means the rows themselves were rejected
+            if (e instanceof ClickHouseException && !RetryPolicy.NONE.isTransient(e)) {
+                throw new IllegalArgumentException("Sample rows do not match the table: " + e.getMessage(), e);
+            }
+            log.error("Error validating {} sample: {}", format, e.getMessage(), e);
+            throw new RuntimeException("Error validating sample: " + e.getMessage(), e);
+        }
+    }
+
+    // Column names and types as the server infers them from a sample of a self-describing file, via the format()
+    // table function. The sample travels as an escaped string literal, so the query size limit is lifted to fit.
+    public Map<String, String> inferSchema(ClickHouseFormat format, byte[] sample) {
+        String query = "DESCRIBE TABLE format(" + format.name() + ", " + toStringLiteral(sample) + ")";
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement()) {
+            ClickHouseRequest<?> request = statement.unwrap(ClickHouseStatement.class).getRequest()
+                    .set("max_query_size", String.valueOf(query.length() + 1024))
+                    .query(query);
+            Map<String, String> columnTypes = new LinkedHashMap<>();
+            try (ClickHouseResponse response = request.executeAndWait()) {
+                for (ClickHouseRecord record : response.records()) {
+                    columnTypes.put(record.getValue(0).asString(), record.getValue(1).asString());
+                }
+            }
+            log.info("Inferred {} schema: {}", format, columnTypes);
+            return columnTypes;
+        } catch (SQLException | ClickHouseException e) {
+            log.error("Error inferring {} schema: {}", format, e.getMessage(), e);
+            throw new RuntimeException("Error inferring schema: " + e.getMessage(), e);
+        }
+    }
+
+    static String toStringLiteral(String value) {
+        return toStringLiteral(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Printable ASCII stays as is; quotes, backslashes and every other byte become escapes
+    private static String toStringLiteral(byte[] bytes) {
+        StringBuilder literal = new StringBuilder(bytes.length * 2 + 2).append('\'');
+        for (byte b : bytes) {
+            int c = b & 0xFF;
+            if (c == '\'' || c == '\\') {
+                literal.append('\\').append((char) c);
+            } else if (c >= 0x20 && c < 0x7F) {
+                literal.append((char) c);
+            } else {
+                literal.append("\\x").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            }
+        }
+        return literal.append('\'').toString();
+    }
+
+    public Map<String, String> describeTable(String tableName) {
+        return metadataCache.getColumns(settings(), tableName, () -> loadColumns(tableName));
+    }
+
+    private Map<String, String> loadColumns(String tableName) {
+        String query = "DESCRIBE TABLE " + tableName;
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+
+            Map<String, String> columnTypes = new LinkedHashMap<>();
+            while (resultSet.next()) {
+                columnTypes.put(resultSet.getString(1), resultSet.getString(2));
+            }
+            log.info("Fetched columns for table '{}': {}", tableName, columnTypes.keySet());
+            return columnTypes;
+        } catch (SQLException e) {
+            log.error("Error describing table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Error describing table", e);
+        }
+    }
+
+    private TimeZone getServerTimeZone() {
+        try (Connection connection = getConnection()) {
+            return connection.unwrap(com.clickhouse.jdbc.ClickHouseConnection.class).getServerTimeZone();
+        } catch (SQLException e) {
+            log.error("Error reading ClickHouse server time zone: {}", e.getMessage(), e);
+            throw new RuntimeException("Error reading server time zone", e);
+        }
     }
 
 //    public void exportDataToFlatFile(String tableName, String filePath) {
@@ -267,35 +783,160 @@ public class ClickHouseService {
 //    }
 
     public void exportSelectedColumnsToFlatFile(String tableName, List<String> selectedColumns, String filePath) {
+        exportSelectedColumnsToFlatFile(tableName, selectedColumns, filePath, ProgressListener.NONE);
+    }
+
+    public long exportSelectedColumnsToFlatFile(String tableName, List<String> selectedColumns, String filePath, ProgressListener progress) {
+        return exportSelectedColumnsToFlatFile(tableName, selectedColumns, filePath, FileFormat.CSV, ExportCompression.NONE, progress);
+    }
+
+    public long exportSelectedColumnsToFlatFile(String tableName, List<String> selectedColumns, String filePath, FileFormat format,
+                                                ExportCompression compression, ProgressListener progress) {
+        // Before the file is opened, which would truncate it
+        validateExport(tableName, selectedColumns, format, compression);
+        log.info("Exporting selected columns '{}' from table '{}' to file '{}' as {} ({} compression)",
+                selectedColumns, tableName, filePath, format, compression);
+        try (OutputStream out = new FileOutputStream(filePath)) {
+            long rows = exportSelectedColumns(tableName, selectedColumns, out, format, compression, progress);
+            log.info("Data export completed successfully.");
+            return rows;
+        } catch (IOException e) {
+            log.error("Error exporting data to flat file: {}", e.getMessage(), e);
+            throw new RuntimeException("Data export failed: " + e.getMessage(), e);
+        }
+    }
+
+    public long exportSelectedColumns(String tableName, List<String> selectedColumns, OutputStream out, ExportCompression compression) {
+        return exportSelectedColumns(tableName, selectedColumns, out, FileFormat.CSV, compression, ProgressListener.NONE);
+    }
+
+    public long exportSelectedColumns(String tableName, List<String> selectedColumns, OutputStream out, FileFormat format,
+                                      ExportCompression compression, ProgressListener progress) {
+        return exportRows(tableName, selectedColumns, null, true, out, format, compression, progress);
+    }
+
+    // Everything an export can be refused for, checked before anything is written: once a file is truncated or a
+    // download has started, the request can no longer fail cleanly
+    public void validateExport(String tableName, List<String> selectedColumns, FileFormat format, ExportCompression compression) {
         if (selectedColumns == null || selectedColumns.isEmpty()) {
             throw new IllegalArgumentException("No columns selected for export.");
         }
+        if (format.isColumnar() && compression == ExportCompression.GZIP && format != FileFormat.PARQUET) {
+            throw new IllegalArgumentException(format + " supports ZSTD or NONE compression, not GZIP");
+        }
+        Map<String, String> columns = describeTable(tableName);
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("Unknown table '" + tableName + "'");
+        }
+        for (String column : selectedColumns) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("Column '" + column + "' does not exist in table '" + tableName + "'");
+            }
+        }
+    }
+
+    // Exports the rows matching a condition, or all of them when it is null. A CSV or TSV continuing an existing
+    // file leaves out its header.
+    long exportRows(String tableName, List<String> selectedColumns, String condition, boolean header, OutputStream out,
+                    FileFormat format, ExportCompression compression, ProgressListener progress) {
+        validateExport(tableName, selectedColumns, format, compression);
+
+        String query = "SELECT " + String.join(", ", selectedColumns) + " FROM " + tableName
+                + (condition == null ? "" : " WHERE " + condition);
+        ProgressListener counted = progress.and(metrics.table(tableName, TransferMetrics.EXPORT).listener());
+        // Bytes are counted after compression, as they leave the JVM
+        OutputStream sink = new ProgressOutputStream(out, counted);
 
-        // Build the query with selected columns
-        String columns = String.join(", ", selectedColumns);
-        String query = "SELECT " + columns + " FROM " + tableName;
+        try {
+            log.info("Streaming selected columns '{}' from table '{}' as {} ({} compression)", selectedColumns, tableName, format, compression);
+            long rows = format == FileFormat.CSV
+                    ? writeCsv(query, selectedColumns, header, compression.wrap(sink), counted)
+                    : streamFormatted(query, format.getClickHouseFormat(header), format, compression, sink, counted);
+            if (rows == UNCOUNTED_ROWS) {
+                log.info("Streamed table '{}' as {}", tableName, format);
+            } else {
+                log.info("Streamed {} rows from table '{}'", rows, tableName);
+            }
+            return rows;
+        } catch (Exception e) {
+            log.error("Error streaming export of table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Data export failed: " + e.getMessage(), e);
+        }
+    }
 
+    private long writeCsv(String query, List<String> selectedColumns, boolean header, OutputStream out, ProgressListener progress) throws SQLException, IOException {
+        CSVFormat csvFormat = header ? CSVFormat.DEFAULT.withHeader(selectedColumns.toArray(new String[0])) : CSVFormat.DEFAULT;
         try (Connection connection = getConnection();
              Statement statement = connection.createStatement();
              ResultSet resultSet = statement.executeQuery(query);
-             FileWriter fileWriter = new FileWriter(filePath);
-             CSVPrinter csvPrinter = new CSVPrinter(fileWriter, CSVFormat.DEFAULT.withHeader(selectedColumns.toArray(new String[0])))) {
-
-            log.info("Exporting selected columns '{}' from table '{}' to file '{}'", selectedColumns, tableName, filePath);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+             CSVPrinter csvPrinter = new CSVPrinter(writer, csvFormat)) {
+            return writeRows(resultSet, selectedColumns.size(), csvPrinter, progress);
+        }
+    }
 
-            // Write rows to the file
-            while (resultSet.next()) {
-                List<Object> row = new ArrayList<>();
-                for (String column : selectedColumns) {
-                    row.add(resultSet.getObject(column));
+    // ClickHouse encodes the result and its bytes are piped to the output untouched. The client only decodes
+    // RowBinary and text responses, so the request declares Native to keep its hands off the body; the FORMAT
+    // clause is what the server goes by. Columnar formats take the compression as their internal codec.
+    // Line formats are counted as they pass through; columnar files are not decoded here, so their row count is
+    // reported as UNCOUNTED_ROWS rather than taken from a second scan that may not match what was written.
+    private long streamFormatted(String query, ClickHouseFormat outputFormat, FileFormat format, ExportCompression compression,
+                                 OutputStream out, ProgressListener progress) throws SQLException, ClickHouseException, IOException {
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement()) {
+            ClickHouseRequest<?> request = statement.unwrap(ClickHouseStatement.class).getRequest()
+                    .format(ClickHouseFormat.Native)
+                    .query(query + " FORMAT " + outputFormat.name());
+            LineCountingOutputStream counter = null;
+            OutputStream target = out;
+            if (format.isColumnar()) {
+                if (compression != ExportCompression.NONE) {
+                    request.set(format.getCodecSetting(), compression.name().toLowerCase());
                 }
-                csvPrinter.printRecord(row);
+            } else {
+                counter = new LineCountingOutputStream(compression.wrap(out), outputFormat.hasHeader(), progress);
+                target = counter;
+            }
+            try (ClickHouseResponse response = request.executeAndWait();
+                 OutputStream body = target) {
+                response.pipe(body, EXPORT_BUFFER_SIZE);
+            }
+            return counter == null ? UNCOUNTED_ROWS : counter.getRows();
+        }
+    }
+
+    // Cells are read by position: the select list fixes the column order, so no per-cell name lookup is needed
+    long writeRows(ResultSet resultSet, int columnCount, CSVPrinter csvPrinter) throws SQLException, IOException {
+        return writeRows(resultSet, columnCount, csvPrinter, ProgressListener.NONE);
+    }
+
+    long writeRows(ResultSet resultSet, int columnCount, CSVPrinter csvPrinter, ProgressListener progress) throws SQLException, IOException {
+        Object[] row = new Object[columnCount];
+        long count = 0;
+        while (resultSet.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = resultSet.getObject(i + 1);
+            }
+            csvPrinter.printRecord(row);
+            count++;
+            // Reported in blocks so the per-row cost stays a mask test
+            if ((count & (PROGRESS_INTERVAL - 1)) == 0) {
+                progress.onRows(PROGRESS_INTERVAL);
             }
+        }
+        progress.onRows(count & (PROGRESS_INTERVAL - 1));
+        return count;
+    }
 
-            log.info("Data export completed successfully.");
-        } catch (Exception e) {
-            log.error("Error exporting data to flat file: {}", e.getMessage(), e);
-            throw new RuntimeException("Data export failed: " + e.getMessage());
+    public long countRows(String tableName) {
+        String query = "SELECT count() FROM " + tableName;
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        } catch (SQLException e) {
+            log.error("Error counting rows of table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Error counting rows", e);
         }
     }
 }
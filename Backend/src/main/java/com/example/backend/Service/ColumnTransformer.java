@@ -0,0 +1,262 @@
+package com.example.backend.Service;
+
+import com.example.backend.Model.ColumnTransform;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+// An ingest request's column transforms compiled once against its column layout into a function array addressed
+// by column index. A cell whose transform fails keeps its original value; failures are counted and a few sampled.
+public final class ColumnTransformer {
+
+    private static final int MAX_FAILURE_SAMPLES = 10;
+    private static final int MAX_CACHED_FORMATTERS = 256;
+    private static final int MAX_SAMPLE_VALUE_LENGTH = 100;
+    private static final DateTimeFormatter CLICKHOUSE_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Map<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    private final List<String> sourceColumns;
+    private final List<String> targetColumns;
+    private final UnaryOperator<String>[] functions;
+    private final LongAdder failures = new LongAdder();
+    private final AtomicInteger sampled = new AtomicInteger();
+    private final Queue<String> failureSamples = new ConcurrentLinkedQueue<>();
+
+    private ColumnTransformer(List<String> sourceColumns, List<String> targetColumns, UnaryOperator<String>[] functions) {
+        this.sourceColumns = sourceColumns;
+        this.targetColumns = targetColumns;
+        this.functions = functions;
+    }
+
+    // Without a transform of its own, the first column named "dob" keeps its historical ISO date-time rewrite
+    public static ColumnTransformer compile(List<String> columns, List<ColumnTransform> transforms) {
+        UnaryOperator<String>[] functions = functionArray(columns.size());
+        List<String> targetColumns = new ArrayList<>(columns);
+        boolean[] configured = new boolean[columns.size()];
+        for (ColumnTransform transform : transforms == null ? List.<ColumnTransform>of() : transforms) {
+            int index = columns.indexOf(transform.getColumn());
+            if (index < 0) {
+                throw new IllegalArgumentException("Transform refers to unknown column '" + transform.getColumn() + "'");
+            }
+            if (configured[index]) {
+                throw new IllegalArgumentException("Column '" + transform.getColumn() + "' has more than one transform");
+            }
+            configured[index] = true;
+            functions[index] = compile(transform);
+            if (transform.getRename() != null && !transform.getRename().isBlank()) {
+                targetColumns.set(index, transform.getRename().trim());
+            }
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase("dob")) {
+                if (!configured[i]) {
+                    functions[i] = dateTime(DateTimeFormatter.ISO_DATE_TIME);
+                }
+                break;
+            }
+        }
+        Set<String> distinct = new HashSet<>();
+        for (String target : targetColumns) {
+            if (!distinct.add(target)) {
+                throw new IllegalArgumentException("Transforms produce duplicate column '" + target + "'");
+            }
+        }
+        return new ColumnTransformer(List.copyOf(columns), List.copyOf(targetColumns), functions);
+    }
+
+    public List<String> getTargetColumns() {
+        return targetColumns;
+    }
+
+    public void apply(String[] cells, int offset) {
+        for (int i = 0; i < functions.length; i++) {
+            UnaryOperator<String> function = functions[i];
+            String value = cells[offset + i];
+            if (function == null || value == null) {
+                continue;
+            }
+            try {
+                cells[offset + i] = function.apply(value);
+            } catch (RuntimeException e) {
+                recordFailure(i, value, e);
+            }
+        }
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public List<String> getFailureSamples() {
+        return List.copyOf(failureSamples);
+    }
+
+    private void recordFailure(int column, String value, RuntimeException e) {
+        failures.increment();
+        if (sampled.getAndIncrement() < MAX_FAILURE_SAMPLES) {
+            String shown = value.length() > MAX_SAMPLE_VALUE_LENGTH ? value.substring(0, MAX_SAMPLE_VALUE_LENGTH) + "..." : value;
+            failureSamples.add(sourceColumns.get(column) + "='" + shown + "': " + e.getMessage());
+        }
+    }
+
+    private static UnaryOperator<String> compile(ColumnTransform transform) {
+        if (transform.getDateTimeFormat() != null && transform.getDateFormat() != null) {
+            throw new IllegalArgumentException("Column '" + transform.getColumn() + "' sets both dateTimeFormat and dateFormat");
+        }
+        List<UnaryOperator<String>> steps = new ArrayList<>();
+        if (transform.isTrim()) {
+            steps.add(String::trim);
+        }
+        if (transform.getNullTokens() != null && !transform.getNullTokens().isEmpty()) {
+            Set<String> tokens = Set.copyOf(transform.getNullTokens());
+            steps.add(value -> tokens.contains(value) ? null : value);
+        }
+        if (transform.getDateTimeFormat() != null) {
+            steps.add(dateTime(formatter(transform.getDateTimeFormat(), DateTimeFormatter.ISO_DATE_TIME)));
+        }
+        if (transform.getDateFormat() != null) {
+            steps.add(date(formatter(transform.getDateFormat(), DateTimeFormatter.ISO_DATE)));
+        }
+        if (transform.isNumeric()) {
+            char decimal = separator(transform, "decimalSeparator", transform.getDecimalSeparator(), '.');
+            char grouping = separator(transform, "groupingSeparator", transform.getGroupingSeparator(), decimal == ',' ? '.' : ',');
+            if (decimal == grouping) {
+                throw new IllegalArgumentException("Column '" + transform.getColumn() + "' uses '" + decimal + "' as both decimal and grouping separator");
+            }
+            steps.add(numeric(decimal, grouping));
+        }
+        return chain(steps);
+    }
+
+    // Steps stop at the first null, so a null token is never handed to a parser
+    private static UnaryOperator<String> chain(List<UnaryOperator<String>> steps) {
+        if (steps.isEmpty()) {
+            return null;
+        }
+        if (steps.size() == 1) {
+            return steps.get(0);
+        }
+        UnaryOperator<String>[] chained = steps.toArray(functionArray(steps.size()));
+        return value -> {
+            for (UnaryOperator<String> step : chained) {
+                value = step.apply(value);
+                if (value == null) {
+                    return null;
+                }
+            }
+            return value;
+        };
+    }
+
+    private static UnaryOperator<String> dateTime(DateTimeFormatter input) {
+        return value -> value.isEmpty() ? value : LocalDateTime.parse(value, input).format(CLICKHOUSE_DATE_TIME);
+    }
+
+    private static UnaryOperator<String> date(DateTimeFormatter input) {
+        return value -> value.isEmpty() ? value : LocalDate.parse(value, input).format(DateTimeFormatter.ISO_LOCAL_DATE);
+    }
+
+    // Grouping characters (the configured one, spaces or underscores) are only dropped where they split the integer
+    // part into thousands, so 1,5 read with a decimal point fails rather than becoming 15
+    private static UnaryOperator<String> numeric(char decimalSeparator, char groupingSeparator) {
+        return value -> {
+            if (value.isEmpty()) {
+                return value;
+            }
+            int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+            int end = start;
+            boolean grouped = false;
+            while (end < value.length() && (Character.isDigit(value.charAt(end)) || isGrouping(value.charAt(end), groupingSeparator))) {
+                grouped |= !Character.isDigit(value.charAt(end));
+                end++;
+            }
+            String integer = value.substring(start, end);
+            if (grouped) {
+                integer = ungroup(integer, groupingSeparator);
+            }
+            String rest = value.substring(end);
+            if (!rest.isEmpty() && rest.charAt(0) == decimalSeparator) {
+                rest = "." + rest.substring(1);
+            }
+            return new BigDecimal(value.substring(0, start) + integer + rest).toPlainString();
+        };
+    }
+
+    private static boolean isGrouping(char c, char groupingSeparator) {
+        return c == groupingSeparator || c == ' ' || c == '\u00A0' || c == '_';
+    }
+
+    // 1,234,567 becomes 1234567: one to three digits, then groups of exactly three behind the same separator
+    private static String ungroup(String integer, char groupingSeparator) {
+        StringBuilder digits = new StringBuilder(integer.length());
+        char separator = 0;
+        int groupLength = 0;
+        for (int i = 0; i < integer.length(); i++) {
+            char c = integer.charAt(i);
+            if (Character.isDigit(c)) {
+                digits.append(c);
+                groupLength++;
+            } else if (separator == 0 ? groupLength >= 1 && groupLength <= 3 : c == separator && groupLength == 3) {
+                separator = c;
+                groupLength = 0;
+            } else {
+                throw notGrouped(integer, groupingSeparator);
+            }
+        }
+        if (groupLength != 3) {
+            throw notGrouped(integer, groupingSeparator);
+        }
+        return digits.toString();
+    }
+
+    private static NumberFormatException notGrouped(String integer, char groupingSeparator) {
+        return new NumberFormatException("'" + integer + "' is not grouped in thousands; set decimalSeparator if '"
+                + groupingSeparator + "' marks decimals");
+    }
+
+    private static char separator(ColumnTransform transform, String name, String value, char fallback) {
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        char separator = value.charAt(0);
+        if (value.length() != 1 || Character.isLetterOrDigit(separator) || separator == '-' || separator == '+') {
+            throw new IllegalArgumentException("Column '" + transform.getColumn() + "' has an invalid " + name + " '" + value + "'");
+        }
+        return separator;
+    }
+
+    // Generic arrays cannot be created directly; every element put in one is a UnaryOperator<String>
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static UnaryOperator<String>[] functionArray(int length) {
+        return new UnaryOperator[length];
+    }
+
+    // Patterns are shared across requests; an invalid one fails the request before any row is read
+    private static DateTimeFormatter formatter(String pattern, DateTimeFormatter iso) {
+        if (pattern.equalsIgnoreCase("ISO")) {
+            return iso;
+        }
+        DateTimeFormatter cached = FORMATTERS.get(pattern);
+        if (cached != null) {
+            return cached;
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
+        if (FORMATTERS.size() < MAX_CACHED_FORMATTERS) {
+            FORMATTERS.putIfAbsent(pattern, formatter);
+        }
+        return formatter;
+    }
+}
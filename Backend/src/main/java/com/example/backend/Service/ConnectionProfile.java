@@ -0,0 +1,72 @@
+package com.example.backend.Service;
+
+import com.example.backend.Model.ClickHouseConnection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One session's ClickHouse target, with its own request rate limit and a count of the work running under it
+public class ConnectionProfile {
+
+    private final String tenant;
+    private final ClickHouseConnection settings;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    // Generic cell rate algorithm: the time the next request is due; a request may run up to the burst early
+    private final AtomicLong nextDue;
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile long lastUsed = System.nanoTime();
+
+    ConnectionProfile(String tenant, ClickHouseConnection settings, double requestsPerSecond, int burst) {
+        this.tenant = tenant;
+        this.settings = settings;
+        this.intervalNanos = requestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond) : 0;
+        this.toleranceNanos = intervalNanos * Math.max(0, burst - 1);
+        this.nextDue = new AtomicLong(System.nanoTime());
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public ClickHouseConnection getSettings() {
+        return settings;
+    }
+
+    // Lock-free: concurrent requests race on one compare-and-set, and a loser retries against the new due time
+    public boolean tryAcquire() {
+        if (intervalNanos == 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        while (true) {
+            long due = nextDue.get();
+            long start = Math.max(due, now);
+            if (start - now > toleranceNanos) {
+                return false;
+            }
+            if (nextDue.compareAndSet(due, start + intervalNanos)) {
+                return true;
+            }
+        }
+    }
+
+    void enter() {
+        active.incrementAndGet();
+        lastUsed = System.nanoTime();
+    }
+
+    void exit() {
+        lastUsed = System.nanoTime();
+        active.decrementAndGet();
+    }
+
+    boolean isIdle(long idleNanos) {
+        return active.get() == 0 && System.nanoTime() - lastUsed > idleNanos;
+    }
+
+    boolean sameTarget(ClickHouseConnection other) {
+        return settings.equals(other);
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.backend.Service;
+
+import com.example.backend.Model.ClickHouseConnection;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// The ClickHouse target of every connected session, keyed by the session id in its JWT. A request binds its
+// session's profile to the handling thread; work handed to other threads carries the profile along through
+// propagate(). Pools and cached schema are per target, so sessions only share them when they share a server.
+@Component
+@Slf4j
+public class ConnectionRegistry {
+
+    public static final String SESSION_CLAIM = "sid";
+
+    private static final ThreadLocal<ConnectionProfile> CURRENT = new ThreadLocal<>();
+
+    @Value("${clickhouse.tenant.idle-timeout-ms:1800000}")
+    private long idleTimeoutMs = 1_800_000L;
+
+    @Value("${clickhouse.tenant.sweep-interval-ms:60000}")
+    private long sweepIntervalMs = 60_000L;
+
+    @Value("${clickhouse.tenant.requests-per-second:50}")
+    private double requestsPerSecond = 50;
+
+    @Value("${clickhouse.tenant.burst:100}")
+    private int burst = 100;
+
+    @Autowired
+    private ClickHouseConnectionPool connectionPool;
+
+    @Autowired
+    private SchemaMetadataCache metadataCache;
+
+    private final Map<String, ConnectionProfile> profiles = new ConcurrentHashMap<>();
+    // Targets being tried by a connect that has not registered yet; their pools are in use, though no profile
+    // points at them. Guarded by lock, which the sweep holds while it decides which pools to close.
+    private final List<ClickHouseConnection> connecting = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    public void start() {
+        if (idleTimeoutMs <= 0) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("tenant-sweeper").daemon().factory());
+        sweeper.scheduleWithFixedDelay(this::evictIdle, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    // Tokens issued before sessions existed fall back to their subject
+    public static String tenantOf(Claims claims) {
+        String session = claims.get(SESSION_CLAIM, String.class);
+        return session != null ? session : claims.getSubject();
+    }
+
+    // The check tries the target's pool; the session only moves to the target once it passes
+    public ConnectionProfile connect(String tenant, ClickHouseConnection settings, Consumer<ClickHouseConnection> check) {
+        lock.lock();
+        try {
+            connecting.add(settings);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            check.accept(settings);
+            return register(tenant, settings);
+        } finally {
+            lock.lock();
+            try {
+                connecting.remove(settings);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public ConnectionProfile register(String tenant, ClickHouseConnection settings) {
+        ConnectionProfile created = new ConnectionProfile(tenant, settings, requestsPerSecond, burst);
+        // A previous target's pool may still serve this session's running jobs; the sweep closes it once unused
+        ConnectionProfile previous = profiles.put(tenant, created);
+        log.info("Session '{}' connected to {}:{}/{} ({} sessions)", tenant, settings.getHost(), settings.getPort(),
+                settings.getDatabase(), profiles.size());
+        // Schema cached for the target stays valid for the other sessions on it; only a target left behind is forgotten
+        if (previous != null && !previous.sameTarget(settings)) {
+            forgetSchema(previous.getSettings());
+        }
+        return created;
+    }
+
+    // Binds the session's profile to the current thread; null when the session never connected or went idle
+    public ConnectionProfile bind(String tenant) {
+        ConnectionProfile profile = tenant == null ? null : profiles.get(tenant);
+        if (profile != null) {
+            profile.enter();
+            CURRENT.set(profile);
+        }
+        return profile;
+    }
+
+    public void unbind() {
+        ConnectionProfile profile = CURRENT.get();
+        if (profile != null) {
+            CURRENT.remove();
+            profile.exit();
+        }
+    }
+
+    public ConnectionProfile current() {
+        return CURRENT.get();
+    }
+
+    public List<ConnectionProfile> profiles() {
+        return List.copyOf(profiles.values());
+    }
+
+    public void runAs(ConnectionProfile profile, Runnable task) {
+        ConnectionProfile previous = enter(profile);
+        try {
+            task.run();
+        } finally {
+            leave(profile, previous);
+        }
+    }
+
+    public Runnable propagate(Runnable task) {
+        ConnectionProfile profile = CURRENT.get();
+        if (profile == null) {
+            return task;
+        }
+        return () -> runAs(profile, task);
+    }
+
+    public <T> Callable<T> propagate(Callable<T> task) {
+        ConnectionProfile profile = CURRENT.get();
+        if (profile == null) {
+            return task;
+        }
+        return () -> {
+            ConnectionProfile previous = enter(profile);
+            try {
+                return task.call();
+            } finally {
+                leave(profile, previous);
+            }
+        };
+    }
+
+    private static ConnectionProfile enter(ConnectionProfile profile) {
+        ConnectionProfile previous = CURRENT.get();
+        profile.enter();
+        CURRENT.set(profile);
+        return previous;
+    }
+
+    private static void leave(ConnectionProfile profile, ConnectionProfile previous) {
+        profile.exit();
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    // remove(key, value) only drops the profile that was found idle, so a session reconnecting meanwhile keeps its
+    // new one, and requests never wait on the sweep. Pools no profile or pending connect points at are closed after
+    // their borrowed connections come back; the lock keeps a connect from starting on a pool between check and close.
+    void evictIdle() {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        try {
+            profiles.forEach((tenant, profile) -> {
+                if (profile.isIdle(idleNanos) && profiles.remove(tenant, profile)) {
+                    log.info("Session '{}' idle for over {} ms, releasing it", tenant, idleTimeoutMs);
+                    forgetSchema(profile.getSettings());
+                }
+            });
+            lock.lock();
+            try {
+                List<ClickHouseConnection> live = new ArrayList<>(connecting);
+                profiles.values().forEach(profile -> live.add(profile.getSettings()));
+                connectionPool.closeUnused(live);
+            } finally {
+                lock.unlock();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Idle session sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Cached schema goes with the last session using the target
+    private void forgetSchema(ClickHouseConnection settings) {
+        if (profiles.values().stream().noneMatch(profile -> profile.sameTarget(settings))) {
+            metadataCache.invalidateTarget(settings);
+        }
+    }
+}
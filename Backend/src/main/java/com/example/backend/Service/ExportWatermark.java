@@ -0,0 +1,124 @@
+package com.example.backend.Service;
+
+import com.example.backend.Model.ExportCompression;
+import com.example.backend.Model.FileFormat;
+import com.example.backend.Model.IncrementalOutput;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+// How far one table has been exported to one target: the highest watermark column value written so far, and
+// for appended output the length the file had once that run was complete. Only advanced after a run's rows
+// are all on disk, so an interrupted run is repeated rather than skipped.
+public class ExportWatermark implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path file;
+    private final State state;
+    private Runnable onClose = () -> {
+    };
+
+    private ExportWatermark(Path file, State state) {
+        this.file = file;
+        this.state = state;
+    }
+
+    static ExportWatermark create(Path file, String target, String table, String column, String filePath, List<String> columns,
+                                  FileFormat format, ExportCompression compression, IncrementalOutput output) {
+        State state = new State();
+        state.setTarget(target);
+        state.setTable(table);
+        state.setColumn(column);
+        state.setFilePath(filePath);
+        state.setColumns(columns);
+        state.setFormat(format);
+        state.setCompression(compression);
+        state.setOutput(output);
+        return new ExportWatermark(file, state);
+    }
+
+    static ExportWatermark load(Path file) throws IOException {
+        return new ExportWatermark(file, MAPPER.readValue(file.toFile(), State.class));
+    }
+
+    // Appended runs must keep writing the same layout; rotated files stand alone, so only the column matters there
+    boolean matches(List<String> columns, FileFormat format, ExportCompression compression, IncrementalOutput output) {
+        if (state.getOutput() != output) {
+            return false;
+        }
+        return output == IncrementalOutput.ROTATE
+                || (state.getColumns().equals(columns) && state.getFormat() == format && state.getCompression() == compression);
+    }
+
+    String describe() {
+        return "export of columns " + state.getColumns() + " as " + state.getFormat() + " with " + state.getCompression()
+                + " compression and " + state.getOutput() + " output";
+    }
+
+    // Null until the first run completes
+    public String getValue() {
+        return state.getValue();
+    }
+
+    public long getRuns() {
+        return state.getRuns();
+    }
+
+    public long getFileLength() {
+        return state.getFileLength();
+    }
+
+    public void advance(String value, long rows, long fileLength) {
+        state.setValue(value);
+        state.setRuns(state.getRuns() + 1);
+        state.setRowsExported(state.getRowsExported() + rows);
+        state.setFileLength(fileLength);
+        save();
+    }
+
+    void onClose(Runnable onClose) {
+        this.onClose = onClose;
+    }
+
+    @Override
+    public void close() {
+        onClose.run();
+    }
+
+    // Written next to the watermark and moved over it, so a crash mid-write leaves the previous version
+    private void save() {
+        state.setUpdatedAt(System.currentTimeMillis());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            MAPPER.writeValue(temporary.toFile(), state);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing export watermark '" + file + "': " + e.getMessage(), e);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    static class State {
+        private String target;
+        private String table;
+        private String column;
+        private String filePath;
+        private List<String> columns;
+        private FileFormat format;
+        private ExportCompression compression;
+        private IncrementalOutput output;
+        private String value;
+        private long runs;
+        private long rowsExported;
+        private long fileLength;
+        private long updatedAt;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.backend.Service;
+
+import com.example.backend.Model.ExportCompression;
+import com.example.backend.Model.FileFormat;
+import com.example.backend.Model.IncrementalOutput;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One JSON file per server, table, watermark column and output path under clickhouse.export.watermark-dir.
+// Files are named by the table and a hash of the rest, since paths and hosts do not make safe file names.
+@Component
+@Slf4j
+public class ExportWatermarkStore {
+
+    @Value("${clickhouse.export.watermark-dir:watermarks}")
+    private String directory = "watermarks";
+
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public ExportWatermark open(String target, String tableName, String column, String filePath, List<String> columns,
+                               FileFormat format, ExportCompression compression, IncrementalOutput output) {
+        String key = key(target, tableName, column, filePath);
+        // Two runs from the same watermark would export the same rows twice
+        if (!running.add(key)) {
+            throw new IllegalStateException("An incremental export of table '" + tableName + "' to '" + filePath + "' is already running");
+        }
+        try {
+            ExportWatermark watermark = load(key, target, tableName, column, filePath, columns, format, compression, output);
+            watermark.onClose(() -> running.remove(key));
+            return watermark;
+        } catch (RuntimeException e) {
+            running.remove(key);
+            throw e;
+        }
+    }
+
+    // The next run starts from the beginning of the table again
+    public boolean reset(String target, String tableName, String column, String filePath) {
+        String key = key(target, tableName, column, filePath);
+        if (running.contains(key)) {
+            throw new IllegalStateException("An incremental export of table '" + tableName + "' to '" + filePath + "' is running");
+        }
+        try {
+            boolean deleted = Files.deleteIfExists(Path.of(directory).resolve(key + ".json"));
+            if (deleted) {
+                log.info("Reset export watermark of table '{}' on column '{}' for '{}'", tableName, column, filePath);
+            }
+            return deleted;
+        } catch (IOException e) {
+            throw new RuntimeException("Error resetting export watermark: " + e.getMessage(), e);
+        }
+    }
+
+    private ExportWatermark load(String key, String target, String tableName, String column, String filePath, List<String> columns,
+                                 FileFormat format, ExportCompression compression, IncrementalOutput output) {
+        try {
+            Path dir = Path.of(directory);
+            Files.createDirectories(dir);
+            Path file = dir.resolve(key + ".json");
+            if (!Files.exists(file)) {
+                return ExportWatermark.create(file, target, tableName, column, filePath, columns, format, compression, output);
+            }
+
+            ExportWatermark watermark = ExportWatermark.load(file);
+            if (!watermark.matches(columns, format, compression, output)) {
+                throw new IllegalArgumentException("'" + filePath + "' holds an " + watermark.describe()
+                        + "; continue it with the same settings, use another file or reset the watermark");
+            }
+            log.info("Continuing export of table '{}' after {} = {} ({} runs)", tableName, column, watermark.getValue(), watermark.getRuns());
+            return watermark;
+        } catch (IOException e) {
+            log.error("Error opening export watermark for table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Error opening export watermark: " + e.getMessage(), e);
+        }
+    }
+
+    private static String key(String target, String tableName, String column, String filePath) {
+        String identity = target + "\n" + tableName + "\n" + column + "\n" + Path.of(filePath).toAbsolutePath().normalize();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+            return tableName.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
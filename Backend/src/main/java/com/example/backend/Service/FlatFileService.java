@@ -1,46 +1,68 @@
 package com.example.backend.Service;
 
+import com.example.backend.DTO.IngestionStats;
+import com.clickhouse.data.ClickHouseFormat;
+import com.example.backend.DTO.UploadSummaryDTO;
+import com.example.backend.Model.FileFormat;
+import com.example.backend.Model.IngestOptions;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class FlatFileService {
 
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
     @Autowired
     private ClickHouseService clickHouseService;
 
+    @Value("${flatfile.upload.preview-rows:10}")
+    private int previewRows;
+
+    @Autowired
+    private TransferMetrics metrics = TransferMetrics.noop();
+
     public List<Map<String, String>> upload(MultipartFile file, String delimiter, String tableName) {
         List<Map<String, String>> rows = new ArrayList<>();
+        // Checked before the catch-all below, so a bad delimiter stays a client error
+        CSVFormat csvFormat = buildCsvFormat(delimiter);
         try (Reader reader = new BufferedReader(new InputStreamReader(file.getInputStream()))) {
             log.info("Starting file upload for table: {}", tableName);
 
             // Parse the file using the specified delimiter
             log.info("Parsing file with delimiter: {}", delimiter);
-            CSVFormat csvFormat = CSVFormat.DEFAULT.builder()
-                    .setDelimiter(delimiter.charAt(0))
-                    .setHeader()
-                    .setSkipHeaderRecord(true)
-                    .build();
 
             try (CSVParser csvParser = new CSVParser(reader, csvFormat)) {
+                long parseStart = System.nanoTime();
                 for (CSVRecord record : csvParser) {
                     rows.add(record.toMap());
                 }
+                metrics.csvParseTimer(tableName).record(System.nanoTime() - parseStart, TimeUnit.NANOSECONDS);
+                metrics.table(tableName, TransferMetrics.INGEST).bytes().increment(file.getSize());
                 log.info("Saving data to ClickHouse...");
                 clickHouseService.saveDyanamicData(rows, tableName);
                 log.info("File parsed successfully. Total rows: {}", rows.size());
@@ -54,4 +76,223 @@ public class FlatFileService {
         }
         return rows;
     }
-}
\ No newline at end of file
+
+    public UploadSummaryDTO uploadStreaming(MultipartFile file, String delimiter, String tableName, IngestOptions options) {
+        try (InputStream input = file.getInputStream()) {
+            return uploadStreaming(input, delimiter, tableName, options, ProgressListener.NONE);
+        } catch (IOException e) {
+            log.error("Error reading the file: {}", e.getMessage(), e);
+            throw new RuntimeException("Error processing file: " + e.getMessage(), e);
+        }
+    }
+
+    public UploadSummaryDTO uploadStreaming(InputStream input, String delimiter, String tableName, IngestOptions options, ProgressListener progress) {
+        List<Map<String, String>> preview = new ArrayList<>();
+        ProgressListener counted = progress.and(metrics.table(tableName, TransferMetrics.INGEST).byteListener());
+
+        try (Reader reader = new BufferedReader(new InputStreamReader(new ProgressInputStream(input, counted), StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+             CSVParser csvParser = new CSVParser(reader, buildCsvFormat(delimiter))) {
+            log.info("Starting streaming upload for table: {} with batch size: {}", tableName, options.getBatchSize());
+
+            // Records are pulled lazily by the ingest pipeline, so parsing overlaps with the inserts. Cells are
+            // copied by position into the pipeline's batches; only the preview rows are turned into maps.
+            List<String> columns = csvParser.getHeaderNames();
+            Iterator<CSVRecord> records = csvParser.iterator();
+            int width = columns.size();
+            RowReader rows = (cells, offset) -> {
+                if (!records.hasNext()) {
+                    return false;
+                }
+                CSVRecord record = records.next();
+                int present = Math.min(width, record.size());
+                for (int i = 0; i < present; i++) {
+                    cells[offset + i] = record.get(i);
+                }
+                for (int i = present; i < width; i++) {
+                    cells[offset + i] = null;
+                }
+                if (preview.size() < previewRows) {
+                    preview.add(record.toMap());
+                }
+                progress.onRows(1);
+                return true;
+            };
+            IngestionStats stats = clickHouseService.ingestRows(columns, rows, tableName, options);
+            // The producer side of the pipeline is the parse and convert time, minus waits on a full queue
+            metrics.csvParseTimer(tableName).record(stats.getProducerMillis(), TimeUnit.MILLISECONDS);
+
+            log.info("Streaming upload finished for table '{}': {} rows in {} batches", tableName, stats.getRowsIngested(), stats.getBatches());
+            return new UploadSummaryDTO(
+                    "File uploaded successfully!",
+                    stats.getRowsIngested(),
+                    (int) stats.getBatches(),
+                    stats.getProducerMillis(),
+                    stats.getInsertMillis(),
+                    stats.getElapsedMillis(),
+                    columns,
+                    preview,
+                    stats.getTransformFailures(),
+                    stats.getTransformFailureSamples(),
+                    stats.getIngestId(),
+                    stats.getRowsSkipped()
+            );
+        } catch (IOException e) {
+            log.error("Error reading the file: {}", e.getMessage(), e);
+            throw new RuntimeException("Error processing file: " + e.getMessage(), e);
+        }
+    }
+
+    // Plain comma-separated files with a header row go to ClickHouse byte-for-byte as CSVWithNames
+    public UploadSummaryDTO uploadRaw(MultipartFile file, String tableName) {
+        return uploadRaw(file, tableName, FileFormat.CSV, ",", 0, null, null);
+    }
+
+    // The body goes to ClickHouse as INSERT ... FORMAT <format> without being decoded here. CSV and TSV get
+    // String columns from their header; the other formats carry their own types, so a missing table is created
+    // with the schema ClickHouse infers from a sample of the file. For CSV and TSV, validateRows > 0 first has
+    // the server parse that many leading rows into the table's types, so a file that would fail part-way is
+    // rejected before any of it is inserted; the rest of the file is trusted.
+    public UploadSummaryDTO uploadRaw(MultipartFile file, String tableName, FileFormat format, String delimiter, int validateRows,
+                                      String orderBy, String partitionBy) {
+        return uploadRaw(file, file.getSize(), tableName, format, delimiter, validateRows, orderBy, partitionBy);
+    }
+
+    // The source is opened again for a Parquet footer, so it may be an upload or a file on the server's disk
+    public UploadSummaryDTO uploadRaw(InputStreamSource file, long size, String tableName, FileFormat format, String delimiter,
+                                      int validateRows, String orderBy, String partitionBy) {
+        long start = System.nanoTime();
+        try (BufferedInputStream input = new BufferedInputStream(file.getInputStream(), READ_BUFFER_SIZE)) {
+            List<String> columns;
+            Map<String, String> settings = Map.of();
+            if (format.isDelimited()) {
+                char separator = format == FileFormat.TSV ? '\t' : separator(delimiter);
+                if (separator != ',') {
+                    settings = Map.of("format_csv_delimiter", String.valueOf(separator));
+                }
+                columns = readHeader(input, separator, format == FileFormat.CSV);
+                if (validateRows > 0) {
+                    validateSample(input, format, tableName, columns, validateRows, settings);
+                }
+                log.info("Forwarding raw {} into table '{}' with columns: {}", format, tableName, columns);
+                clickHouseService.ensureTable(tableName, columns, orderBy, partitionBy);
+            } else {
+                if (validateRows > 0) {
+                    throw new IllegalArgumentException("validateRows applies to CSV and TSV uploads; " + format + " files carry their own types");
+                }
+                columns = ensureTypedTable(file, size, input, format, tableName, orderBy, partitionBy);
+                log.info("Forwarding raw {} into table '{}' with columns: {}", format, tableName, columns);
+            }
+
+            long insertStart = System.nanoTime();
+            long rowsWritten = clickHouseService.insertRaw(tableName, input, format.getClickHouseFormat(), settings);
+            long end = System.nanoTime();
+            return new UploadSummaryDTO(
+                    "File uploaded successfully!",
+                    rowsWritten,
+                    1,
+                    TimeUnit.NANOSECONDS.toMillis(insertStart - start),
+                    TimeUnit.NANOSECONDS.toMillis(end - insertStart),
+                    TimeUnit.NANOSECONDS.toMillis(end - start),
+                    columns,
+                    List.of(),
+                    0,
+                    List.of(),
+                    null,
+                    0
+            );
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (IOException e) {
+            log.error("Error reading the file: {}", e.getMessage(), e);
+            throw new RuntimeException("Error processing file: " + e.getMessage(), e);
+        } catch (Exception e) {
+            log.error("Unexpected error occurred: {}", e.getMessage(), e);
+            throw new RuntimeException("An unexpected error occurred: " + e.getMessage(), e);
+        }
+    }
+
+    // An existing table keeps its own types and ClickHouse converts the file's columns into them by name
+    private List<String> ensureTypedTable(InputStreamSource file, long size, BufferedInputStream input, FileFormat format,
+                                          String tableName, String orderBy, String partitionBy) throws Exception {
+        if (clickHouseService.getTables().contains(tableName)) {
+            return List.copyOf(clickHouseService.describeTable(tableName).keySet());
+        }
+        Map<String, String> schema = switch (format) {
+            case NDJSON -> clickHouseService.inferSchema(ClickHouseFormat.JSONEachRow, SchemaSample.ndjson(input));
+            case ARROW -> clickHouseService.inferSchema(ClickHouseFormat.ArrowStream, SchemaSample.arrow(input, true));
+            case ARROW_STREAM -> clickHouseService.inferSchema(ClickHouseFormat.ArrowStream, SchemaSample.arrow(input, false));
+            case PARQUET -> clickHouseService.inferSchema(ClickHouseFormat.Parquet, SchemaSample.parquet(file, size));
+            case CSV, TSV -> throw new IllegalArgumentException(format + " has no types to infer");
+        };
+        if (schema.isEmpty()) {
+            throw new IllegalArgumentException("No columns found in the " + format + " file");
+        }
+        clickHouseService.createTableDynamically(tableName, schema, orderBy, partitionBy);
+        return List.copyOf(schema.keySet());
+    }
+
+    // A table that already exists lends its types; a new one will get String columns, which checks the layout
+    private void validateSample(BufferedInputStream input, FileFormat format, String tableName, List<String> columns,
+                                int rows, Map<String, String> settings) throws Exception {
+        Map<String, String> existing = clickHouseService.getTables().contains(tableName)
+                ? clickHouseService.describeTable(tableName)
+                : null;
+        Map<String, String> columnTypes = new LinkedHashMap<>();
+        for (String column : columns) {
+            String type = existing == null ? "String" : existing.get(column);
+            if (type == null) {
+                throw new IllegalArgumentException("Column '" + column + "' is not in table '" + tableName + "'");
+            }
+            columnTypes.put(column, type);
+        }
+        byte[] sample = SchemaSample.delimited(input, rows, format == FileFormat.CSV);
+        long parsed = clickHouseService.validateSample(format.getClickHouseFormat(), columnTypes, sample, settings);
+        log.info("Validated the first {} rows of the {} upload for table '{}'", parsed, format, tableName);
+    }
+
+    static char separator(String delimiter) {
+        if (delimiter == null || delimiter.length() != 1 || delimiter.charAt(0) == '"'
+                || delimiter.charAt(0) == '\n' || delimiter.charAt(0) == '\r') {
+            throw new IllegalArgumentException("Delimiter must be a single character other than a quote or line break");
+        }
+        return delimiter.charAt(0);
+    }
+
+    // Peeks at the header line and rewinds, so the forwarded body still starts with it. TSV has no quoting.
+    private List<String> readHeader(BufferedInputStream input, char separator, boolean quoted) throws IOException {
+        input.mark(READ_BUFFER_SIZE);
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) != -1 && b != '\n') {
+            if (headerBytes.size() >= READ_BUFFER_SIZE - 1) {
+                throw new IllegalArgumentException("Header line is too long");
+            }
+            headerBytes.write(b);
+        }
+        input.reset();
+
+        String header = headerBytes.toString(StandardCharsets.UTF_8);
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        CSVFormat headerFormat = CSVFormat.DEFAULT.builder()
+                .setDelimiter(separator)
+                .setQuote(quoted ? Character.valueOf('"') : null)
+                .build();
+        try (CSVParser headerParser = CSVParser.parse(header, headerFormat)) {
+            List<CSVRecord> records = headerParser.getRecords();
+            if (records.isEmpty()) {
+                throw new IllegalArgumentException("File has no header row");
+            }
+            return records.get(0).stream().map(String::trim).toList();
+        }
+    }
+
+    private static CSVFormat buildCsvFormat(String delimiter) {
+        return CSVFormat.DEFAULT.builder()
+                .setDelimiter(separator(delimiter))
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .build();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.backend.Service;
+
+import com.example.backend.DTO.IncrementalExportDTO;
+import com.example.backend.Model.ExportCompression;
+import com.example.backend.Model.FileFormat;
+import com.example.backend.Model.IncrementalOutput;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Exports only the rows whose watermark column is above the value the previous run stopped at. Each run first
+// fixes its upper bound with max(), so rows arriving while it writes are left for the next run instead of being
+// split between the two. The column must grow with inserts, such as an insert time or a sequential id; rows
+// inserted later with a value at or below a completed run's bound are not picked up.
+@Service
+@Slf4j
+public class IncrementalExportService {
+
+    @Autowired
+    private ClickHouseService clickHouseService;
+
+    @Autowired
+    private ExportWatermarkStore watermarkStore;
+
+    public IncrementalExportDTO export(String tableName, List<String> selectedColumns, String filePath, String watermarkColumn,
+                                       IncrementalOutput output, FileFormat format, ExportCompression compression) {
+        if (selectedColumns == null || selectedColumns.isEmpty()) {
+            throw new IllegalArgumentException("No columns selected for export.");
+        }
+        String type = columnType(tableName, watermarkColumn);
+        if (output == IncrementalOutput.APPEND && format.isColumnar()) {
+            throw new IllegalArgumentException(format + " files cannot be appended to; use ROTATE output");
+        }
+
+        long start = System.nanoTime();
+        try (ExportWatermark watermark = watermarkStore.open(clickHouseService.targetName(), tableName, watermarkColumn, filePath,
+                selectedColumns, format, compression, output)) {
+            String previous = watermark.getValue();
+            String lower = previous == null ? null : watermarkColumn + " > " + literal(previous, type);
+            Bound bound = upperBound(tableName, watermarkColumn, lower);
+            if (bound.rows() == 0) {
+                log.info("No rows in table '{}' past {} = {}", tableName, watermarkColumn, previous);
+                return new IncrementalExportDTO("No new rows to export.", 0, null, previous, previous, elapsedMillis(start));
+            }
+
+            String condition = (lower == null ? "" : lower + " AND ") + watermarkColumn + " <= " + literal(bound.value(), type);
+            Path path = output == IncrementalOutput.APPEND
+                    ? Path.of(filePath)
+                    : rotated(Path.of(filePath), watermark.getRuns() + 1);
+            log.info("Exporting rows of table '{}' with {} in ({}, {}] to '{}'", tableName, watermarkColumn, previous, bound.value(), path);
+            long rows = output == IncrementalOutput.APPEND
+                    ? append(watermark, path, tableName, selectedColumns, condition, format, compression)
+                    : write(path, tableName, selectedColumns, condition, format, compression);
+            // Columnar files are not counted as they are written; the bound's count is the same range's as of just before
+            if (rows == ClickHouseService.UNCOUNTED_ROWS) {
+                rows = bound.rows();
+            }
+            watermark.advance(bound.value(), rows, output == IncrementalOutput.APPEND ? Files.size(path) : 0);
+
+            long elapsedMillis = elapsedMillis(start);
+            log.info("Incremental export of table '{}' finished: {} rows in {} ms", tableName, rows, elapsedMillis);
+            return new IncrementalExportDTO("Data export completed successfully.", rows, path.toString(), previous, bound.value(), elapsedMillis);
+        } catch (IOException e) {
+            log.error("Error during incremental export of table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Data export failed: " + e.getMessage(), e);
+        }
+    }
+
+    public boolean reset(String tableName, String filePath, String watermarkColumn) {
+        return watermarkStore.reset(clickHouseService.targetName(), tableName, watermarkColumn, filePath);
+    }
+
+    // Bytes past the recorded length come from a run that never completed; they are cut off before appending,
+    // and so is whatever a failing run managed to write, so the file only ever holds completed runs
+    private long append(ExportWatermark watermark, Path path, String tableName, List<String> selectedColumns, String condition,
+                        FileFormat format, ExportCompression compression) throws IOException {
+        long committed = Files.exists(path) ? Files.size(path) : 0;
+        // Without a watermark the content is not an earlier run's, and rows without a header would be mixed into it
+        if (watermark.getRuns() == 0 && committed > 0) {
+            throw new IllegalArgumentException("'" + path + "' already exists and no incremental export has written to it;"
+                    + " remove it or export to another file");
+        }
+        if (watermark.getRuns() > 0 && committed > watermark.getFileLength()) {
+            log.warn("Discarding {} bytes of an unfinished export at the end of '{}'", committed - watermark.getFileLength(), path);
+            truncate(path, watermark.getFileLength());
+            committed = watermark.getFileLength();
+        }
+        try (OutputStream out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            return clickHouseService.exportRows(tableName, selectedColumns, condition, committed == 0, out, format, compression, ProgressListener.NONE);
+        } catch (RuntimeException e) {
+            truncate(path, committed);
+            throw e;
+        }
+    }
+
+    private long write(Path path, String tableName, List<String> selectedColumns, String condition, FileFormat format,
+                       ExportCompression compression) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            return clickHouseService.exportRows(tableName, selectedColumns, condition, true, out, format, compression, ProgressListener.NONE);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    private static void truncate(Path path, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+    }
+
+    // users.csv.gz becomes users-000001.csv.gz, so rotated files keep their extensions and sort in run order
+    private static Path rotated(Path path, long run) {
+        String name = path.getFileName().toString();
+        int dot = name.indexOf('.', 1);
+        String numbered = dot < 0
+                ? name + String.format("-%06d", run)
+                : name.substring(0, dot) + String.format("-%06d", run) + name.substring(dot);
+        return path.resolveSibling(numbered);
+    }
+
+    private record Bound(String value, long rows) {
+    }
+
+    // Rows with a NULL watermark never compare above a bound, so they are neither counted nor exported
+    private Bound upperBound(String tableName, String column, String lower) {
+        String query = "SELECT toString(max(" + column + ")), count(" + column + ") FROM " + tableName
+                + (lower == null ? "" : " WHERE " + lower);
+        try (Connection connection = clickHouseService.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            resultSet.next();
+            return new Bound(resultSet.getString(1), resultSet.getLong(2));
+        } catch (SQLException e) {
+            log.error("Error reading the watermark bound of table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Error reading the watermark bound", e);
+        }
+    }
+
+    // Watermarks are kept as text; the cast compares them in the column's own type, so 9 stays below 10
+    private static String literal(String value, String type) {
+        return "CAST(" + ClickHouseService.toStringLiteral(value) + " AS " + type + ")";
+    }
+
+    private String columnType(String tableName, String column) {
+        try {
+            if (tableName == null || !clickHouseService.getTables().contains(tableName)) {
+                throw new IllegalArgumentException("Unknown table '" + tableName + "'");
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error listing tables: " + e.getMessage(), e);
+        }
+        String type = column == null ? null : clickHouseService.describeTable(tableName).get(column);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown watermark column '" + column + "'");
+        }
+        return type;
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
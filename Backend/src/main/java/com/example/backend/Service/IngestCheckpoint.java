@@ -0,0 +1,168 @@
+package com.example.backend.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Which batches of one ingest run ClickHouse has acknowledged. Batches are numbered in source order, so a
+// rerun of the same source with the same batch size rebuilds identical batches and can skip the committed ones.
+// Every batch is also sent with a deduplication token derived from the run id and its number, which lets
+// ClickHouse drop a batch that was committed just before the checkpoint could record it.
+public class IngestCheckpoint implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path file;
+    private final State state;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Runnable onClose = () -> {
+    };
+
+    private IngestCheckpoint(Path file, State state) {
+        this.file = file;
+        this.state = state;
+    }
+
+    // A run nobody will resume: nothing is written, but retried batches still carry tokens
+    public static IngestCheckpoint transientRun() {
+        State state = new State();
+        state.setIngestId(UUID.randomUUID().toString());
+        return new IngestCheckpoint(null, state);
+    }
+
+    static IngestCheckpoint create(Path file, String ingestId, String table, List<String> columns, int batchSize) {
+        State state = new State();
+        state.setIngestId(ingestId);
+        state.setTable(table);
+        state.setColumns(columns);
+        state.setBatchSize(batchSize);
+        return new IngestCheckpoint(file, state);
+    }
+
+    static IngestCheckpoint load(Path file) throws IOException {
+        return new IngestCheckpoint(file, MAPPER.readValue(file.toFile(), State.class));
+    }
+
+    public String getIngestId() {
+        return state.getIngestId();
+    }
+
+    public boolean isPersistent() {
+        return file != null;
+    }
+
+    String getTable() {
+        return state.getTable();
+    }
+
+    List<String> getColumns() {
+        return state.getColumns();
+    }
+
+    int getBatchSize() {
+        return state.getBatchSize();
+    }
+
+    public String token(long sequence) {
+        return state.getIngestId() + "-" + sequence;
+    }
+
+    public boolean isCommitted(long sequence) {
+        lock.lock();
+        try {
+            return sequence < state.getCommittedBatches() || state.getCommittedAbove().contains(sequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Workers finish out of order: batches below the watermark are all committed, the ones above it are listed
+    public void commit(long sequence, int rows) {
+        lock.lock();
+        try {
+            state.getCommittedAbove().add(sequence);
+            while (state.getCommittedAbove().remove(state.getCommittedBatches())) {
+                state.setCommittedBatches(state.getCommittedBatches() + 1);
+            }
+            state.setRowsCommitted(state.getRowsCommitted() + rows);
+            save();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void complete() {
+        lock.lock();
+        try {
+            state.setCompleted(true);
+            save();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isCompleted() {
+        lock.lock();
+        try {
+            return state.isCompleted();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRowsCommitted() {
+        lock.lock();
+        try {
+            return state.getRowsCommitted();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onClose(Runnable onClose) {
+        this.onClose = onClose;
+    }
+
+    @Override
+    public void close() {
+        onClose.run();
+    }
+
+    // Written next to the checkpoint and moved over it, so a crash mid-write leaves the previous version
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        state.setUpdatedAt(System.currentTimeMillis());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            MAPPER.writeValue(temporary.toFile(), state);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing ingest checkpoint '" + file + "': " + e.getMessage(), e);
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    static class State {
+        private String ingestId;
+        private String table;
+        private List<String> columns;
+        private int batchSize;
+        private long committedBatches;
+        private TreeSet<Long> committedAbove = new TreeSet<>();
+        private long rowsCommitted;
+        private boolean completed;
+        private long updatedAt;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.backend.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// One JSON file per ingest id under clickhouse.ingest.checkpoint-dir; runs without an id are not recorded
+@Component
+@Slf4j
+public class IngestCheckpointStore {
+
+    private static final Pattern INGEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,128}");
+
+    @Value("${clickhouse.ingest.checkpoint-dir:checkpoints}")
+    private String directory = "checkpoints";
+
+    @Value("${clickhouse.ingest.checkpoint-retention-ms:604800000}")
+    private long retentionMs = 604_800_000L;
+
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public IngestCheckpoint open(String ingestId, String tableName, List<String> columns, int batchSize) {
+        if (ingestId == null || ingestId.isBlank()) {
+            return IngestCheckpoint.transientRun();
+        }
+        if (!INGEST_ID.matcher(ingestId).matches() || ingestId.startsWith(".")) {
+            throw new IllegalArgumentException("Ingest id may only contain letters, digits, '.', '_' and '-' (at most 128)");
+        }
+        // Two runs sharing a checkpoint would each skip only what they saw committed and insert the rest twice
+        if (!running.add(ingestId)) {
+            throw new IllegalStateException("Ingest '" + ingestId + "' is already running");
+        }
+        try {
+            IngestCheckpoint checkpoint = load(ingestId, tableName, columns, batchSize);
+            checkpoint.onClose(() -> running.remove(ingestId));
+            return checkpoint;
+        } catch (RuntimeException e) {
+            running.remove(ingestId);
+            throw e;
+        }
+    }
+
+    private IngestCheckpoint load(String ingestId, String tableName, List<String> columns, int batchSize) {
+        try {
+            Path dir = Path.of(directory);
+            Files.createDirectories(dir);
+            purgeExpired(dir);
+            Path file = dir.resolve(ingestId + ".json");
+            if (!Files.exists(file)) {
+                return IngestCheckpoint.create(file, ingestId, tableName, columns, batchSize);
+            }
+
+            // Skipping by batch number is only sound when the rerun cuts the source into the same batches
+            IngestCheckpoint checkpoint = IngestCheckpoint.load(file);
+            if (!checkpoint.getTable().equals(tableName) || !checkpoint.getColumns().equals(columns)
+                    || checkpoint.getBatchSize() != batchSize) {
+                throw new IllegalArgumentException("Ingest id '" + ingestId + "' was started for table '" + checkpoint.getTable()
+                        + "' with columns " + checkpoint.getColumns() + " and batch size " + checkpoint.getBatchSize()
+                        + "; resume it with the same settings or use a new id");
+            }
+            log.info("Resuming ingest '{}' into table '{}' after {} committed rows", ingestId, tableName, checkpoint.getRowsCommitted());
+            return checkpoint;
+        } catch (IOException e) {
+            log.error("Error opening ingest checkpoint '{}': {}", ingestId, e.getMessage(), e);
+            throw new RuntimeException("Error opening ingest checkpoint: " + e.getMessage(), e);
+        }
+    }
+
+    private void purgeExpired(Path dir) {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    Files.deleteIfExists(file);
+                    log.info("Removed expired ingest checkpoint '{}'", file.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not purge expired ingest checkpoints in '{}': {}", dir, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.backend.Service;
+
+import com.clickhouse.jdbc.ClickHouseStatement;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+public class JdbcBatchWriter implements BatchWriter {
+
+    private final Connection connection;
+    private final PreparedStatement preparedStatement;
+    private final ClickHouseStatement clickHouseStatement;
+
+    public JdbcBatchWriter(Connection connection, String insertQuery) throws SQLException {
+        this.connection = connection;
+        try {
+            this.preparedStatement = connection.prepareStatement(insertQuery);
+            this.clickHouseStatement = preparedStatement.isWrapperFor(ClickHouseStatement.class)
+                    ? preparedStatement.unwrap(ClickHouseStatement.class)
+                    : null;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(RowBatch batch, String deduplicationToken) throws SQLException {
+        if (clickHouseStatement != null && deduplicationToken != null) {
+            // executeBatch sends the rows as one insert built from the statement's request, settings included
+            clickHouseStatement.getRequest().set("insert_deduplication_token", deduplicationToken);
+        }
+        int width = batch.width();
+        for (int row = 0; row < batch.size(); row++) {
+            for (int i = 0; i < width; i++) {
+                preparedStatement.setString(i + 1, batch.get(row, i));
+            }
+            preparedStatement.addBatch();
+        }
+        preparedStatement.executeBatch();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            preparedStatement.close();
+        } finally {
+            connection.close();
+        }
+    }
+}
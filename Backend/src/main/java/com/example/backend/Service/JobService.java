@@ -0,0 +1,370 @@
+package com.example.backend.Service;
+
+import com.example.backend.DTO.IngestionResponse;
+import com.example.backend.DTO.IngestionStats;
+import com.example.backend.DTO.JobStatusDTO;
+import com.example.backend.Model.ExportCompression;
+import com.example.backend.Model.FileFormat;
+import com.example.backend.Model.IngestOptions;
+import com.example.backend.Model.JobStatus;
+import com.example.backend.Model.JobType;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Runs ingest, upload and export transfers off the request thread on a bounded pool. Ingest and upload jobs
+// run under an ingest id (the job id unless the caller gave one) from a spooled temp file; when they fail or are
+// cancelled the file is kept until the job expires, so resume() can rerun them and skip the batches already committed.
+@Service
+@Slf4j
+public class JobService {
+
+    @Value("${transfer.jobs.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${transfer.jobs.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${transfer.jobs.max-per-user:2}")
+    private int maxPerUser;
+
+    @Value("${transfer.jobs.retention-ms:3600000}")
+    private long retentionMs;
+
+    @Value("${transfer.jobs.progress-interval-ms:1000}")
+    private long progressIntervalMs;
+
+    @Autowired
+    private ClickHouseService clickHouseService;
+
+    @Autowired
+    private FlatFileService flatFileService;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Autowired
+    private ConnectionRegistry connectionRegistry;
+
+    @Autowired
+    private TransferMetrics metrics;
+
+    private static final ObjectMapper ROWS = new ObjectMapper();
+    private static final TypeReference<Map<String, String>> KEYED_ROW = new TypeReference<>() {
+    };
+
+    private final Map<String, TransferJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Resumable> resumables = new ConcurrentHashMap<>();
+    private final ReentrantLock submitLock = new ReentrantLock();
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService progressScheduler;
+
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), workerThreads.factory("transfer-job-"));
+        progressScheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("job-progress").daemon().factory());
+        metrics.jobGauge("queued", () -> countJobs(JobStatus.QUEUED));
+        metrics.jobGauge("running", () -> countJobs(JobStatus.RUNNING));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(TransferJob::requestCancel);
+        executor.shutdownNow();
+        progressScheduler.shutdownNow();
+    }
+
+    // The rows are spooled to an NDJSON temp file and read back as the job runs, so neither a running job nor a
+    // failed one kept for resume() holds the request body on the heap
+    public JobStatusDTO submitIngest(String owner, List<Map<String, String>> rows, String tableName, IngestOptions options) throws IOException {
+        Path spooled = Files.createTempFile("ingest-", ".ndjson");
+        try (SequenceWriter writer = ROWS.writer().withRootValueSeparator("\n").writeValues(spooled.toFile())) {
+            writer.writeAll(rows);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+        TransferJob job = new TransferJob(JobType.INGEST, owner, tableName);
+        job.setTotalRows(rows.size());
+        defaultIngestId(options, job);
+        try {
+            return submit(job, running -> {
+                try (MappingIterator<Map<String, String>> spooledRows = ROWS.readerFor(KEYED_ROW).readValues(spooled.toFile())) {
+                    Stream<Map<String, String>> stream = StreamSupport.stream(
+                            Spliterators.spliteratorUnknownSize(spooledRows, Spliterator.ORDERED), false);
+                    IngestionStats stats = clickHouseService.ingestData(stream.peek(row -> running.onRows(1)), tableName, options);
+                    return new IngestionResponse("Data ingestion successful", stats.getRowsIngested(), stats);
+                }
+            }, spooled);
+        } catch (RuntimeException e) {
+            deleteQuietly(spooled);
+            throw e;
+        }
+    }
+
+    // The multipart body only lives as long as the request, so it is moved to a temp file before returning
+    public JobStatusDTO submitUpload(String owner, MultipartFile file, String delimiter, String tableName, IngestOptions options) throws IOException {
+        FlatFileService.separator(delimiter);
+        Path spooled = Files.createTempFile("upload-", ".csv");
+        try {
+            file.transferTo(spooled);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spooled);
+            throw e;
+        }
+        TransferJob job = new TransferJob(JobType.UPLOAD, owner, tableName);
+        job.setTotalBytes(Files.size(spooled));
+        defaultIngestId(options, job);
+        try {
+            return submit(job, running -> {
+                try (InputStream input = Files.newInputStream(spooled)) {
+                    return flatFileService.uploadStreaming(input, delimiter, tableName, options, running);
+                }
+            }, spooled);
+        } catch (RuntimeException e) {
+            deleteQuietly(spooled);
+            throw e;
+        }
+    }
+
+    public JobStatusDTO submitExport(String owner, String tableName, List<String> selectedColumns, String filePath,
+                                     FileFormat format, ExportCompression compression) {
+        // Refused requests get their 400 here instead of taking a job slot and failing later
+        clickHouseService.validateExport(tableName, selectedColumns, format, compression);
+        TransferJob job = new TransferJob(JobType.EXPORT, owner, tableName);
+        return submit(job, running -> {
+            running.setTotalRows(clickHouseService.countRows(tableName));
+            long rows = clickHouseService.exportSelectedColumnsToFlatFile(tableName, selectedColumns, filePath, format, compression, running);
+            return rows == ClickHouseService.UNCOUNTED_ROWS ? "Exported table to " + filePath : "Exported " + rows + " rows to " + filePath;
+        }, null);
+    }
+
+    // The new job reruns the old one's work under the same ingest id and takes over its kept input
+    public JobStatusDTO resume(String id, String owner) {
+        submitLock.lock();
+        try {
+            TransferJob previous = findJob(id, owner);
+            Resumable resumable = resumables.get(id);
+            if (resumable == null || (previous.getStatus() != JobStatus.FAILED && previous.getStatus() != JobStatus.CANCELLED)) {
+                throw new IllegalArgumentException("Job '" + id + "' is not a failed or cancelled ingest/upload job");
+            }
+            TransferJob job = new TransferJob(previous.getType(), owner, previous.getTable());
+            job.setTotalRows(previous.getTotalRows());
+            job.setTotalBytes(previous.getTotalBytes());
+            JobStatusDTO submitted = submit(job, resumable.work(), resumable.input());
+            resumables.remove(id);
+            log.info("Job '{}' resumes job '{}'", job.getId(), id);
+            return submitted;
+        } finally {
+            submitLock.unlock();
+        }
+    }
+
+    public JobStatusDTO getJob(String id, String owner) {
+        return findJob(id, owner).toDTO();
+    }
+
+    public List<JobStatusDTO> listJobs(String owner) {
+        purgeExpired();
+        return jobs.values().stream()
+                .filter(job -> job.getOwner().equals(owner))
+                .sorted(Comparator.comparing(TransferJob::getSubmittedAt).reversed())
+                .map(TransferJob::toDTO)
+                .toList();
+    }
+
+    public JobStatusDTO cancel(String id, String owner) {
+        TransferJob job = findJob(id, owner);
+        job.requestCancel();
+        // A queued job never starts; a running one stops at its next progress report or blocking call
+        if (job.finish(JobStatus.CANCELLED, "Cancelled before start", null) || job.getStatus() == JobStatus.RUNNING) {
+            job.getFuture().cancel(true);
+        }
+        log.info("Cancellation requested for job '{}'", id);
+        return job.toDTO();
+    }
+
+    // Pushes a snapshot every progress interval and completes the emitter once the job has finished
+    public SseEmitter streamProgress(String id, String owner) {
+        TransferJob job = findJob(id, owner);
+        SseEmitter emitter = new SseEmitter(0L);
+        AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+        task.set(progressScheduler.scheduleAtFixedRate(() -> {
+            JobStatusDTO snapshot = job.toDTO();
+            try {
+                emitter.send(SseEmitter.event().name("progress").data(snapshot));
+                if (snapshot.getStatus().isFinished()) {
+                    emitter.complete();
+                    cancelTask(task);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away
+                cancelTask(task);
+            }
+        }, 0, progressIntervalMs, TimeUnit.MILLISECONDS));
+        emitter.onCompletion(() -> cancelTask(task));
+        emitter.onTimeout(() -> cancelTask(task));
+        emitter.onError(e -> cancelTask(task));
+        return emitter;
+    }
+
+    private static void cancelTask(AtomicReference<ScheduledFuture<?>> task) {
+        ScheduledFuture<?> future = task.get();
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    // The caller keeps ownership of input if the job is rejected
+    private JobStatusDTO submit(TransferJob job, JobWork work, Path input) {
+        submitLock.lock();
+        try {
+            return submitLocked(job, work, input);
+        } finally {
+            submitLock.unlock();
+        }
+    }
+
+    private JobStatusDTO submitLocked(TransferJob job, JobWork work, Path input) {
+        purgeExpired();
+        long active = jobs.values().stream()
+                .filter(existing -> existing.getOwner().equals(job.getOwner()) && !existing.getStatus().isFinished())
+                .count();
+        if (active >= maxPerUser) {
+            throw new IllegalStateException("User '" + job.getOwner() + "' already has " + active + " active jobs (limit " + maxPerUser + ")");
+        }
+        // Registered before the job can start, so a quick failure already finds its input marked for keeping
+        if (job.getType() != JobType.EXPORT) {
+            resumables.put(job.getId(), new Resumable(work, input));
+        }
+        try {
+            // Jobs run against the target of the session that submitted them
+            job.setFuture(executor.submit(connectionRegistry.propagate(() -> run(job, work, input))));
+        } catch (RejectedExecutionException e) {
+            resumables.remove(job.getId());
+            throw new IllegalStateException("Job queue is full, try again later", e);
+        }
+        jobs.put(job.getId(), job);
+        log.info("Submitted {} job '{}' for user '{}' on table '{}'", job.getType(), job.getId(), job.getOwner(), job.getTable());
+        return job.toDTO();
+    }
+
+    private void run(TransferJob job, JobWork work, Path input) {
+        try {
+            if (job.isCancelRequested() || !job.markRunning()) {
+                return;
+            }
+            log.info("Starting {} job '{}'", job.getType(), job.getId());
+            Object result = work.run(job);
+            job.finish(JobStatus.SUCCEEDED, "Completed successfully", result);
+            log.info("Job '{}' finished: {}", job.getId(), job.toDTO());
+        } catch (Exception e) {
+            if (job.isCancelRequested() || hasCause(e, CancellationException.class) || Thread.currentThread().isInterrupted()) {
+                job.finish(JobStatus.CANCELLED, "Cancelled", null);
+                log.info("Job '{}' cancelled", job.getId());
+            } else {
+                job.finish(JobStatus.FAILED, "Job failed: " + e.getMessage(), null);
+                log.error("Job '{}' failed: {}", job.getId(), e.getMessage(), e);
+            }
+        } finally {
+            // Failed and cancelled ingests keep their input for resume(); it goes when the job expires
+            if (job.getStatus() == JobStatus.SUCCEEDED || resumables.get(job.getId()) == null) {
+                resumables.remove(job.getId());
+                deleteQuietly(input);
+            }
+        }
+    }
+
+    private TransferJob findJob(String id, String owner) {
+        TransferJob job = jobs.get(id);
+        if (job == null || !job.getOwner().equals(owner)) {
+            throw new IllegalArgumentException("Job '" + id + "' not found");
+        }
+        return job;
+    }
+
+    private long countJobs(JobStatus status) {
+        return jobs.values().stream().filter(job -> job.getStatus() == status).count();
+    }
+
+    private void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(job -> {
+            if (!job.getStatus().isFinished() || job.getFinishedAt() == null || job.getFinishedAt().toEpochMilli() >= cutoff) {
+                return false;
+            }
+            Resumable resumable = resumables.remove(job.getId());
+            if (resumable != null) {
+                deleteQuietly(resumable.input());
+            }
+            return true;
+        });
+    }
+
+    private static void defaultIngestId(IngestOptions options, TransferJob job) {
+        if (options.getIngestId() == null || options.getIngestId().isBlank()) {
+            options.setIngestId(job.getId());
+        }
+    }
+
+    private static boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary file '{}': {}", path, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface JobWork {
+        Object run(TransferJob job) throws Exception;
+    }
+
+    private record Resumable(JobWork work, Path input) {
+    }
+}
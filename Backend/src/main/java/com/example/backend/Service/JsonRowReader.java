@@ -0,0 +1,148 @@
+package com.example.backend.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reads objects off a JSON array or NDJSON body token by token, so only the row being parsed is held in memory.
+// Like keyed ingest, the first object's keys fix the columns: later rows leave missing keys null and drop
+// unknown ones. Numbers and booleans arrive as their text; nested objects and arrays as their JSON.
+final class JsonRowReader implements RowReader, AutoCloseable {
+
+    private final JsonFactory factory;
+    private final JsonParser parser;
+    private final List<String> columns = new ArrayList<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private boolean array;
+    private String[] first;
+    private boolean finished;
+
+    private JsonRowReader(JsonFactory factory, JsonParser parser) {
+        this.factory = factory;
+        this.parser = parser;
+    }
+
+    // Reads up to the end of the first object; the parser is closed again if that fails, since no caller holds it yet
+    static JsonRowReader open(JsonFactory factory, InputStream body) throws IOException {
+        JsonParser parser = factory.createParser(body);
+        try {
+            JsonRowReader reader = new JsonRowReader(factory, parser);
+            reader.readFirst();
+            return reader;
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+    }
+
+    private void readFirst() throws IOException {
+        JsonToken token = parser.nextToken();
+        array = token == JsonToken.START_ARRAY;
+        if (array) {
+            token = parser.nextToken();
+        }
+        if (token == null || token == JsonToken.END_ARRAY) {
+            finished = true;
+            return;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw invalid("Expected a JSON array of objects or one object per line");
+        }
+        // The first row is parsed by name to learn the layout, then replayed by the first next() call
+        Map<String, String> row = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if (!positions.containsKey(name)) {
+                positions.put(name, columns.size());
+                columns.add(name);
+            }
+            row.put(name, value());
+        }
+        first = new String[columns.size()];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = row.get(columns.get(i));
+        }
+    }
+
+    boolean hasRows() {
+        return first != null;
+    }
+
+    List<String> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public boolean next(String[] cells, int offset) {
+        if (first != null) {
+            System.arraycopy(first, 0, cells, offset, first.length);
+            first = null;
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null || (array && token == JsonToken.END_ARRAY)) {
+                finished = true;
+                return false;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw invalid("Expected an object but found " + token);
+            }
+            Arrays.fill(cells, offset, offset + columns.size(), null);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Integer position = positions.get(parser.currentName());
+                parser.nextToken();
+                if (position == null) {
+                    parser.skipChildren();
+                } else {
+                    cells[offset + position] = value();
+                }
+            }
+            return true;
+        } catch (JsonProcessingException e) {
+            throw invalid(e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String value() throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            StringWriter json = new StringWriter();
+            try (JsonGenerator generator = factory.createGenerator(json)) {
+                generator.copyCurrentStructure(parser);
+            }
+            return json.toString();
+        }
+        return parser.getText();
+    }
+
+    private IllegalArgumentException invalid(String message) {
+        return new IllegalArgumentException("Invalid JSON body at line " + parser.currentLocation().getLineNr() + ": " + message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -1,33 +1,59 @@
 package com.example.backend.Service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Service
+@Slf4j
 public class JwtService {
 
     private static final String SECRET_KEY = "357638792F423F4428472B4B6250655368566D597133743677397A2443264629";
     private static final long EXPIRATION_TIME = 1000 * 60 * 60 * 10; // 10 hours
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
-    }
+    // Key and parser are immutable and thread-safe, so they are built once instead of per token
+    private static final Key SIGNING_KEY = Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+    private static final JwtParser PARSER = Jwts.parserBuilder().setSigningKey(SIGNING_KEY).build();
+
+    @Value("${jwt.cache.max-entries:10000}")
+    private int maxCachedTokens = 10000;
+
+    @Autowired
+    private TransferMetrics metrics = TransferMetrics.noop();
+
+    // Verified claims keyed by the SHA-256 of the token, kept until the token's own expiry
+    private final Map<String, VerifiedToken> verified = new ConcurrentHashMap<>();
 
     public String generateToken(String username) {
+        return generateToken(username, null);
+    }
+
+    // The session id names the connection profile the token's requests run against
+    public String generateToken(String username, String sessionId) {
         return Jwts.builder()
                 .setSubject(username)
+                .claim(ConnectionRegistry.SESSION_CLAIM, sessionId)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(SIGNING_KEY, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -37,7 +63,13 @@ public class JwtService {
     }
 
     public boolean validateToken(String token) {
-        return !isTokenExpired(token);
+        try {
+            verify(token);
+            return true;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected JWT: {}", e.getMessage());
+            return false;
+        }
     }
 
     public String extractUsername(String token) {
@@ -45,19 +77,67 @@ public class JwtService {
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = verify(token);
         return claimsResolver.apply(claims);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    // Checks signature and expiry once per distinct token; repeat requests only hash the token and compare a timestamp
+    public Claims verify(String token) {
+        long start = System.nanoTime();
+        String key = hash(token);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verified.get(key);
+        if (cached != null) {
+            if (now < cached.expiresAt()) {
+                metrics.recordJwt(System.nanoTime() - start, true, true);
+                return cached.claims();
+            }
+            verified.remove(key, cached);
+        }
+
+        // The parser rejects bad signatures and expired tokens with a JwtException
+        Claims claims;
+        try {
+            claims = PARSER.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            metrics.recordJwt(System.nanoTime() - start, false, false);
+            throw e;
+        }
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            if (verified.size() >= maxCachedTokens) {
+                evict(now);
+            }
+            verified.put(key, new VerifiedToken(claims, expiration.getTime()));
+        }
+        metrics.recordJwt(System.nanoTime() - start, false, true);
+        return claims;
     }
 
     private boolean isTokenExpired(String token) {
         return extractClaim(token, Claims::getExpiration).before(new Date());
     }
-}
\ No newline at end of file
+
+    // Expired entries go first; if every entry is still live, an arbitrary tenth makes room
+    private void evict(long now) {
+        verified.values().removeIf(entry -> entry.expiresAt() <= now);
+        int excess = verified.size() - maxCachedTokens + Math.max(1, maxCachedTokens / 10);
+        Iterator<String> keys = verified.keySet().iterator();
+        while (excess-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record VerifiedToken(Claims claims, long expiresAt) {
+    }
+}
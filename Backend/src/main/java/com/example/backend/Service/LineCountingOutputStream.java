@@ -0,0 +1,56 @@
+package com.example.backend.Service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Counts the rows of a line-per-row text format (TSV, JSONEachRow) as its bytes pass through, skipping a header
+// line if there is one. Both formats escape line breaks inside values, so every '\n' ends a row.
+class LineCountingOutputStream extends FilterOutputStream {
+
+    private final ProgressListener progress;
+    private long headerLines;
+    private long rows;
+
+    LineCountingOutputStream(OutputStream out, boolean header, ProgressListener progress) {
+        super(out);
+        this.headerLines = header ? 1 : 0;
+        this.progress = progress;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        if ((byte) b == '\n') {
+            counted(1);
+        }
+    }
+
+    // FilterOutputStream would split this into single-byte writes
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        out.write(buffer, offset, length);
+        int lines = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (buffer[i] == '\n') {
+                lines++;
+            }
+        }
+        if (lines > 0) {
+            counted(lines);
+        }
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    private void counted(long lines) {
+        long header = Math.min(lines, headerLines);
+        headerLines -= header;
+        if (lines > header) {
+            rows += lines - header;
+            progress.onRows(lines - header);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.backend.Service;
+
+import com.example.backend.DTO.IngestionStats;
+import com.example.backend.DTO.UploadSummaryDTO;
+import com.example.backend.Model.FileFormat;
+import com.example.backend.Model.IngestOptions;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Ingests CSV files that already sit on the server's disk (e.g. earlier exports) without copying them through
+// the request: the file is memory-mapped and parsed chunk by chunk on a dedicated fork-join pool
+@Service
+@Slf4j
+public class LocalFileIngestService {
+
+    @Value("${flatfile.local.base-dir:exportedCSV}")
+    private String baseDir;
+
+    @Value("${flatfile.local.chunk-bytes:4194304}")
+    private int chunkBytes;
+
+    @Value("${flatfile.local.parallelism:0}")
+    private int parallelism;
+
+    @Autowired
+    private ClickHouseService clickHouseService;
+
+    @Autowired
+    private FlatFileService flatFileService;
+
+    @Autowired
+    private TransferMetrics metrics = TransferMetrics.noop();
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void start() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public UploadSummaryDTO ingest(String path, String delimiter, String tableName, IngestOptions options) {
+        return ingest(path, delimiter, tableName, options, ProgressListener.NONE);
+    }
+
+    public UploadSummaryDTO ingest(String path, String delimiter, String tableName, IngestOptions options, ProgressListener progress) {
+        char separator = FlatFileService.separator(delimiter);
+        Path file = resolve(path);
+        ProgressListener counted = progress.and(metrics.table(tableName, TransferMetrics.INGEST).byteListener());
+        // Two chunks per thread in flight keeps every worker busy while the pipeline drains the oldest one
+        try (MappedCsvReader reader = new MappedCsvReader(file, separator, chunkBytes, pool, pool.getParallelism() * 2)) {
+            List<String> columns = reader.getHeader();
+            log.info("Ingesting local file '{}' ({} bytes) into table '{}' with {} parse threads",
+                    file, Files.size(file), tableName, pool.getParallelism());
+
+            IngestionStats stats = clickHouseService.ingestRows(columns, reader.rows(counted), tableName, options);
+            metrics.csvParseTimer(tableName).record(stats.getProducerMillis(), TimeUnit.MILLISECONDS);
+
+            log.info("Local file ingest finished for table '{}': {} rows in {} batches", tableName, stats.getRowsIngested(), stats.getBatches());
+            return new UploadSummaryDTO(
+                    "File ingested successfully!",
+                    stats.getRowsIngested(),
+                    (int) stats.getBatches(),
+                    stats.getProducerMillis(),
+                    stats.getInsertMillis(),
+                    stats.getElapsedMillis(),
+                    columns,
+                    List.of(),
+                    stats.getTransformFailures(),
+                    stats.getTransformFailureSamples(),
+                    stats.getIngestId(),
+                    stats.getRowsSkipped()
+            );
+        } catch (IOException e) {
+            log.error("Error reading the file: {}", e.getMessage(), e);
+            throw new RuntimeException("Error processing file: " + e.getMessage(), e);
+        }
+    }
+
+    // Clean files skip parsing altogether: the bytes are streamed from disk into INSERT ... FORMAT as they are
+    public UploadSummaryDTO ingestRaw(String path, String delimiter, String tableName, FileFormat format, int validateRows,
+                                      String orderBy, String partitionBy) {
+        Path file = resolve(path);
+        try {
+            log.info("Forwarding local file '{}' ({} bytes) into table '{}' as {}", file, Files.size(file), tableName, format);
+            return flatFileService.uploadRaw(() -> Files.newInputStream(file), Files.size(file), tableName, format,
+                    delimiter, validateRows, orderBy, partitionBy);
+        } catch (IOException e) {
+            log.error("Error reading the file: {}", e.getMessage(), e);
+            throw new RuntimeException("Error processing file: " + e.getMessage(), e);
+        }
+    }
+
+    // Only files under the configured base directory can be read, symlinks included
+    private Path resolve(String path) {
+        if (path == null || path.isBlank()) {
+            throw new IllegalArgumentException("No file path given");
+        }
+        try {
+            Path base = Path.of(baseDir).toAbsolutePath().normalize();
+            Path file = base.resolve(path).normalize();
+            if (!file.startsWith(base) || !Files.isRegularFile(file)
+                    || !file.toRealPath().startsWith(base.toRealPath())) {
+                throw new IllegalArgumentException("File '" + path + "' not found under " + baseDir);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("File '" + path + "' not found under " + baseDir, e);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.backend.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+// Parses a CSV file on local disk from memory-mapped chunks on a fork-join pool. Chunks are cut at record
+// boundaries without a sequential pass: the quote count of every raw chunk is taken in parallel, the running
+// parity tells whether each cut lands inside a quoted field, and each cut then moves to the first line break
+// outside quotes. Delimiter, quote and line breaks are ASCII, so they never occur inside a multi-byte UTF-8
+// sequence and cells are decoded only once they have been cut out.
+//
+// Quotes are expected only around fields (RFC 4180); a chunk that ends inside a quoted field is reported as an error.
+final class MappedCsvReader implements AutoCloseable {
+
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final FileChannel channel;
+    private final long size;
+    private final byte delimiter;
+    private final int chunkBytes;
+    private final ForkJoinPool pool;
+    private final int window;
+    private final List<String> header;
+    private final long[] boundaries;
+    private final Deque<ForkJoinTask<ParsedChunk>> inFlight = new ArrayDeque<>();
+    private int nextChunk;
+
+    MappedCsvReader(Path file, char delimiter, int chunkBytes, ForkJoinPool pool, int window) throws IOException {
+        if (delimiter > 0x7F || delimiter == QUOTE || delimiter == CR || delimiter == LF) {
+            throw new IllegalArgumentException("Delimiter must be a single ASCII character other than a quote or line break");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            this.delimiter = (byte) delimiter;
+            this.chunkBytes = chunkBytes;
+            this.pool = pool;
+            this.window = Math.max(1, window);
+
+            long headerStart = hasByteOrderMark() ? 3 : 0;
+            long dataStart = findRecordEnd(headerStart, false);
+            if (dataStart == headerStart) {
+                throw new IllegalArgumentException("File has no header row");
+            }
+            ParsedChunk headerRecord = parse(headerStart, dataStart, Integer.MAX_VALUE >> 1, true);
+            this.header = List.copyOf(Arrays.asList(headerRecord.cells()).subList(0, headerRecord.width()));
+            this.boundaries = planChunks(dataStart);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    List<String> getHeader() {
+        return header;
+    }
+
+    // Rows come back in file order; chunks ahead of the reader are parsed concurrently, at most window at a time
+    RowReader rows(ProgressListener progress) {
+        int width = header.size();
+        return new RowReader() {
+            private ParsedChunk current;
+            private int row;
+
+            @Override
+            public boolean next(String[] cells, int offset) {
+                while (current == null || row == current.rows()) {
+                    current = nextChunk();
+                    row = 0;
+                    if (current == null) {
+                        return false;
+                    }
+                    progress.onBytes(current.bytes());
+                    progress.onRows(current.rows());
+                }
+                System.arraycopy(current.cells(), row++ * width, cells, offset, width);
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        inFlight.forEach(task -> task.cancel(true));
+        inFlight.clear();
+        channel.close();
+    }
+
+    private ParsedChunk nextChunk() {
+        int chunks = boundaries.length - 1;
+        while (nextChunk < chunks && inFlight.size() < window) {
+            long start = boundaries[nextChunk];
+            long end = boundaries[nextChunk + 1];
+            inFlight.add(pool.submit(() -> parse(start, end, header.size(), false)));
+            nextChunk++;
+        }
+        ForkJoinTask<ParsedChunk> task = inFlight.poll();
+        if (task == null) {
+            return null;
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while parsing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException("Error parsing file: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private long[] planChunks(long dataStart) {
+        int chunks = (int) Math.max(1, (size - dataStart + chunkBytes - 1) / chunkBytes);
+        long[] cuts = new long[chunks + 1];
+        for (int i = 0; i < chunks; i++) {
+            cuts[i] = dataStart + (long) i * chunkBytes;
+        }
+        cuts[chunks] = size;
+
+        boolean[] oddQuotes = invoke(() -> {
+            boolean[] odd = new boolean[chunks];
+            IntStream.range(0, chunks).parallel().forEach(i -> odd[i] = countQuotes(cuts[i], cuts[i + 1]) % 2 == 1);
+            return odd;
+        });
+        boolean[] inQuotes = new boolean[chunks];
+        for (int i = 1; i < chunks; i++) {
+            inQuotes[i] = inQuotes[i - 1] ^ oddQuotes[i - 1];
+        }
+        return invoke(() -> {
+            long[] aligned = new long[chunks + 1];
+            aligned[0] = dataStart;
+            aligned[chunks] = size;
+            IntStream.range(1, chunks).parallel().forEach(i -> aligned[i] = findRecordEnd(cuts[i], inQuotes[i]));
+            return aligned;
+        });
+    }
+
+    private <T> T invoke(Callable<T> work) {
+        try {
+            return pool.submit(work).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while planning chunks");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error scanning file: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private long countQuotes(long start, long end) {
+        long quotes = 0;
+        for (long position = start; position < end; position += chunkBytes) {
+            MappedByteBuffer buffer = map(position, Math.min(chunkBytes, end - position));
+            for (int i = 0, limit = buffer.limit(); i < limit; i++) {
+                if (buffer.get(i) == QUOTE) {
+                    quotes++;
+                }
+            }
+        }
+        return quotes;
+    }
+
+    // Position just past the first line feed outside quotes at or after start, or the end of the file
+    private long findRecordEnd(long start, boolean inQuotes) {
+        for (long position = start; position < size; position += chunkBytes) {
+            MappedByteBuffer buffer = map(position, Math.min(chunkBytes, size - position));
+            for (int i = 0, limit = buffer.limit(); i < limit; i++) {
+                byte b = buffer.get(i);
+                if (b == QUOTE) {
+                    inQuotes = !inQuotes;
+                } else if (b == LF && !inQuotes) {
+                    return position + i + 1;
+                }
+            }
+        }
+        return size;
+    }
+
+    private boolean hasByteOrderMark() {
+        if (size < 3) {
+            return false;
+        }
+        MappedByteBuffer buffer = map(0, 3);
+        return buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF;
+    }
+
+    // Cells go row-major into one array, width per row: short records are padded with nulls, extra fields dropped.
+    // With variableWidth the first record sets the width instead (the header).
+    private ParsedChunk parse(long start, long end, int width, boolean variableWidth) {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A single record spans more than 2 GB at byte " + start);
+        }
+        MappedByteBuffer buffer = map(start, end - start);
+        int limit = buffer.limit();
+        byte[] scratch = new byte[256];
+        List<String> fields = variableWidth ? new ArrayList<>() : null;
+        String[] cells = new String[variableWidth ? 0 : width * Math.max(16, limit / 64 / Math.max(1, width))];
+        int rows = 0;
+        int pos = 0;
+
+        while (pos < limit) {
+            byte first = buffer.get(pos);
+            if (first == LF || (first == CR && pos + 1 < limit && buffer.get(pos + 1) == LF)) {
+                // Blank lines are skipped, as commons-csv does
+                pos += first == LF ? 1 : 2;
+                continue;
+            }
+            if (!variableWidth && (rows + 1) * width > cells.length) {
+                cells = Arrays.copyOf(cells, cells.length * 2);
+            }
+            int field = 0;
+            boolean endOfRecord = false;
+            while (!endOfRecord) {
+                String value;
+                if (pos < limit && buffer.get(pos) == QUOTE) {
+                    int length = 0;
+                    pos++;
+                    while (true) {
+                        if (pos >= limit) {
+                            throw new IllegalArgumentException("Unterminated quoted field starting before byte " + (start + pos));
+                        }
+                        byte b = buffer.get(pos++);
+                        if (b == QUOTE) {
+                            if (pos < limit && buffer.get(pos) == QUOTE) {
+                                pos++;
+                            } else {
+                                break;
+                            }
+                        }
+                        if (length == scratch.length) {
+                            scratch = Arrays.copyOf(scratch, length * 2);
+                        }
+                        scratch[length++] = b;
+                    }
+                    value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                    if (pos < limit && buffer.get(pos) == CR && pos + 1 < limit && buffer.get(pos + 1) == LF) {
+                        pos++;
+                    }
+                    if (pos < limit && buffer.get(pos) != delimiter && buffer.get(pos) != LF) {
+                        throw new IllegalArgumentException("Invalid character after quoted field at byte " + (start + pos));
+                    }
+                } else {
+                    int fieldStart = pos;
+                    while (pos < limit && buffer.get(pos) != delimiter && buffer.get(pos) != LF) {
+                        pos++;
+                    }
+                    int fieldEnd = pos;
+                    if (fieldEnd > fieldStart && pos < limit && buffer.get(pos) == LF && buffer.get(fieldEnd - 1) == CR) {
+                        fieldEnd--;
+                    }
+                    int length = fieldEnd - fieldStart;
+                    if (length > scratch.length) {
+                        scratch = new byte[Math.max(length, scratch.length * 2)];
+                    }
+                    buffer.get(fieldStart, scratch, 0, length);
+                    value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+                }
+
+                if (variableWidth) {
+                    fields.add(value);
+                } else if (field < width) {
+                    cells[rows * width + field] = value;
+                }
+                field++;
+                if (pos >= limit || buffer.get(pos) == LF) {
+                    endOfRecord = true;
+                }
+                pos++;
+            }
+            rows++;
+            if (variableWidth) {
+                return new ParsedChunk(fields.toArray(new String[0]), fields.size(), 1, end - start);
+            }
+        }
+        return new ParsedChunk(cells, width, rows, end - start);
+    }
+
+    private MappedByteBuffer map(long position, long length) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        } catch (IOException e) {
+            throw new RuntimeException("Error mapping file region at byte " + position + ": " + e.getMessage(), e);
+        }
+    }
+
+    private record ParsedChunk(String[] cells, int width, int rows, long bytes) {
+    }
+}
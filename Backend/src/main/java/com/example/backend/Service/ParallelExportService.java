@@ -0,0 +1,250 @@
+package com.example.backend.Service;
+
+import com.example.backend.DTO.ExportSummaryDTO;
+import com.example.backend.Model.ExportLayout;
+import com.example.backend.Model.ExportSharding;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Service
+@Slf4j
+public class ParallelExportService {
+
+    private static final int SEGMENT_BUFFER_SIZE = 1 << 20;
+
+    @Autowired
+    private ClickHouseService clickHouseService;
+
+    @Autowired
+    private WorkerThreads workerThreads;
+
+    @Autowired
+    private ConnectionRegistry connectionRegistry;
+
+    @Autowired
+    private TransferMetrics metrics;
+
+    public ExportSummaryDTO export(String tableName, List<String> selectedColumns, String filePath, int parallelism,
+                                   ExportSharding sharding, String shardKey, ExportLayout layout) {
+        if (selectedColumns == null || selectedColumns.isEmpty()) {
+            throw new IllegalArgumentException("No columns selected for export.");
+        }
+        long start = System.nanoTime();
+        int readers = clickHouseService.connectionBudget(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        List<String> predicates = planShards(tableName, selectedColumns, readers, sharding, shardKey);
+        log.info("Exporting table '{}' with {} parallel readers ({} sharding)", tableName, predicates.size(), sharding);
+
+        String select = "SELECT " + String.join(", ", selectedColumns) + " FROM " + tableName + " WHERE ";
+        Path output = Path.of(filePath);
+        boolean headerPerSegment = layout == ExportLayout.ARCHIVE;
+        List<Path> segments = new ArrayList<>(predicates.size());
+        for (int i = 0; i < predicates.size(); i++) {
+            segments.add(output.resolveSibling(output.getFileName() + String.format(".part-%03d", i)));
+        }
+
+        ProgressListener counted = metrics.table(tableName, TransferMetrics.EXPORT).listener();
+        ExecutorService executor = Executors.newFixedThreadPool(predicates.size(), workerThreads.factory("export-reader-"));
+        long rows = 0;
+        try {
+            List<Future<Long>> results = new ArrayList<>(predicates.size());
+            for (int i = 0; i < predicates.size(); i++) {
+                String query = select + predicates.get(i);
+                Path segment = segments.get(i);
+                results.add(executor.submit(connectionRegistry.propagate(() -> writeSegment(query, selectedColumns, segment, headerPerSegment, counted))));
+            }
+            for (Future<Long> result : results) {
+                rows += result.get();
+            }
+
+            if (layout == ExportLayout.ARCHIVE) {
+                writeArchive(output, segments);
+            } else {
+                concatenate(output, selectedColumns, segments);
+            }
+            counted.onBytes(Files.size(output));
+        } catch (Exception e) {
+            executor.shutdownNow();
+            log.error("Error during parallel export of table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Data export failed: " + e.getMessage(), e);
+        } finally {
+            executor.shutdown();
+            for (Path segment : segments) {
+                try {
+                    Files.deleteIfExists(segment);
+                } catch (IOException e) {
+                    log.warn("Could not delete export segment '{}': {}", segment, e.getMessage());
+                }
+            }
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Parallel export of table '{}' finished: {} rows in {} ms", tableName, rows, elapsedMillis);
+        return new ExportSummaryDTO("Data export completed successfully.", rows, segments.size(), elapsedMillis, output.toString());
+    }
+
+    // Each predicate selects a disjoint slice of the table; together they cover every row exactly once
+    private List<String> planShards(String tableName, List<String> selectedColumns, int readers, ExportSharding sharding, String shardKey) {
+        if (readers <= 1) {
+            return List.of("1");
+        }
+        if (sharding == ExportSharding.PARTITION) {
+            List<String> partitions = activePartitions(tableName);
+            if (partitions.size() > 1) {
+                int shards = Math.min(readers, partitions.size());
+                List<List<String>> assigned = new ArrayList<>(shards);
+                for (int i = 0; i < shards; i++) {
+                    assigned.add(new ArrayList<>());
+                }
+                for (int i = 0; i < partitions.size(); i++) {
+                    assigned.get(i % shards).add("'" + partitions.get(i).replace("'", "\\'") + "'");
+                }
+                return assigned.stream().map(ids -> "_partition_id IN (" + String.join(", ", ids) + ")").toList();
+            }
+            log.info("Table '{}' has a single partition, falling back to hash sharding", tableName);
+        } else if (sharding == ExportSharding.KEY_RANGE) {
+            if (shardKey == null || shardKey.isBlank()) {
+                throw new IllegalArgumentException("KEY_RANGE sharding requires a shardKey column");
+            }
+            return keyRanges(tableName, shardKey, readers);
+        }
+        String hashInput = shardKey != null && !shardKey.isBlank() ? shardKey : String.join(", ", selectedColumns);
+        List<String> predicates = new ArrayList<>(readers);
+        for (int i = 0; i < readers; i++) {
+            // A NULL among Nullable inputs makes the hash NULL; those rows go to the first shard
+            predicates.add("ifNull(cityHash64(" + hashInput + ") % " + readers + ", 0) = " + i);
+        }
+        return predicates;
+    }
+
+    private List<String> activePartitions(String tableName) {
+        String database = null;
+        String table = tableName;
+        int dot = tableName.indexOf('.');
+        if (dot > 0) {
+            database = tableName.substring(0, dot);
+            table = tableName.substring(dot + 1);
+        }
+        String query = "SELECT DISTINCT partition_id FROM system.parts WHERE active AND table = ? AND database = "
+                + (database == null ? "currentDatabase()" : "?");
+        try (Connection connection = clickHouseService.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(query)) {
+            preparedStatement.setString(1, table);
+            if (database != null) {
+                preparedStatement.setString(2, database);
+            }
+            List<String> partitions = new ArrayList<>();
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    partitions.add(resultSet.getString(1));
+                }
+            }
+            return partitions;
+        } catch (SQLException e) {
+            log.error("Error listing partitions of table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Error listing partitions", e);
+        }
+    }
+
+    // min() and max() skip NULL keys, and no range matches them, so the first range also takes the NULLs
+    private List<String> keyRanges(String tableName, String shardKey, int readers) {
+        String key = "toInt64(" + shardKey + ")";
+        String query = "SELECT min(" + key + "), max(" + key + ") FROM " + tableName;
+        try (Connection connection = clickHouseService.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            resultSet.next();
+            long min = resultSet.getLong(1);
+            long max = resultSet.getLong(2);
+            long span = max - min + 1;
+            int shards = (int) Math.max(1, Math.min(readers, span));
+            long step = Math.max(1, span / shards);
+            List<String> predicates = new ArrayList<>(shards);
+            for (int i = 0; i < shards; i++) {
+                long lower = min + step * i;
+                // The last range is open-ended so rounding never drops the top of the key space
+                String range = i == shards - 1
+                        ? key + " >= " + lower
+                        : key + " >= " + lower + " AND " + key + " < " + (lower + step);
+                predicates.add(i == 0 ? "(" + range + ") OR isNull(" + shardKey + ")" : range);
+            }
+            return predicates;
+        } catch (SQLException e) {
+            log.error("Error computing key ranges for table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Error computing key ranges", e);
+        }
+    }
+
+    private long writeSegment(String query, List<String> selectedColumns, Path segment, boolean withHeader, ProgressListener progress) throws Exception {
+        CSVFormat format = withHeader
+                ? CSVFormat.DEFAULT.builder().setHeader(selectedColumns.toArray(new String[0])).build()
+                : CSVFormat.DEFAULT;
+        try (Connection connection = clickHouseService.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(segment), StandardCharsets.UTF_8), SEGMENT_BUFFER_SIZE);
+             CSVPrinter csvPrinter = new CSVPrinter(writer, format)) {
+            long rows = clickHouseService.writeRows(resultSet, selectedColumns.size(), csvPrinter, progress);
+            log.debug("Wrote {} rows to export segment '{}'", rows, segment);
+            return rows;
+        }
+    }
+
+    // Segments are appended in shard order with a kernel-side copy; only the header is written by the JVM
+    private void concatenate(Path output, List<String> selectedColumns, List<Path> segments) throws IOException {
+        try (FileChannel target = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            String header = CSVFormat.DEFAULT.format(selectedColumns.toArray()) + CSVFormat.DEFAULT.getRecordSeparator();
+            ByteBuffer headerBytes = ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8));
+            while (headerBytes.hasRemaining()) {
+                target.write(headerBytes);
+            }
+            for (Path segment : segments) {
+                try (FileChannel source = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = source.size();
+                    while (position < size) {
+                        position += source.transferTo(position, size - position, target);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeArchive(Path output, List<Path> segments) throws IOException {
+        try (OutputStream out = Files.newOutputStream(output);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (int i = 0; i < segments.size(); i++) {
+                zip.putNextEntry(new ZipEntry(String.format("part-%03d.csv", i)));
+                Files.copy(segments.get(i), zip);
+                zip.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.backend.Service;
+
+import com.example.backend.Model.FilterOperator;
+import com.example.backend.Model.PreviewFilter;
+import com.example.backend.Model.PreviewRequest;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Reads a slice of a table for display. Selection, filters, ordering, paging and sampling all go into the query,
+// so ClickHouse reads only what is shown. Identifiers are checked against the table's own columns and every
+// filter value is bound as a parameter; nothing from the request is pasted into the SQL as text.
+@Service
+@Slf4j
+public class PreviewService {
+
+    @Value("${clickhouse.preview.default-rows:100}")
+    private int defaultRows = 100;
+
+    @Value("${clickhouse.preview.max-rows:10000}")
+    private int maxRows = 10000;
+
+    @Value("${clickhouse.preview.timeout-seconds:10}")
+    private int timeoutSeconds = 10;
+
+    @Autowired
+    private ClickHouseService clickHouseService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // The built query and what is needed to render its rows
+    public record PreviewQuery(String tableName, String sql, List<String> parameters, List<String> columns,
+                               Map<String, String> types, List<String> orderBy, int limit) {
+    }
+
+    // Validates the request up front, so a bad one is rejected before any of the response is written
+    public PreviewQuery prepare(String tableName, PreviewRequest request) {
+        Map<String, String> types = tableColumns(tableName);
+        List<String> columns = new ArrayList<>(request.getColumns() == null || request.getColumns().isEmpty()
+                ? types.keySet()
+                : checkColumns(types, request.getColumns()));
+        List<String> orderBy = request.getOrderBy() == null ? List.of() : checkColumns(types, request.getOrderBy());
+        // The next page's key is read off the last row, so order columns are selected even when not asked for
+        for (String column : orderBy) {
+            if (!columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+        List<String> parameters = new ArrayList<>();
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", columns)).append(" FROM ").append(tableName);
+        if (request.getSample() != null) {
+            double sample = request.getSample();
+            if (!(sample > 0 && sample <= 1)) {
+                throw new IllegalArgumentException("Sample must be a fraction in (0, 1]");
+            }
+            if (!hasSamplingKey(tableName)) {
+                throw new IllegalArgumentException("Table '" + tableName + "' has no sampling key");
+            }
+            sql.append(" SAMPLE ").append(BigDecimal.valueOf(sample).toPlainString());
+        }
+
+        List<String> conditions = new ArrayList<>();
+        if (request.getFilters() != null) {
+            for (PreviewFilter filter : request.getFilters()) {
+                conditions.add(condition(types, filter, parameters));
+            }
+        }
+        if (request.getAfter() != null) {
+            if (orderBy.isEmpty() || request.getAfter().size() != orderBy.size()) {
+                throw new IllegalArgumentException("Keyset paging needs one 'after' value per orderBy column");
+            }
+            if (request.getOffset() != null) {
+                throw new IllegalArgumentException("Use either 'after' or 'offset', not both");
+            }
+            // Tuple comparison continues right after the last row seen, in the same order
+            conditions.add("(" + String.join(", ", orderBy) + ") " + (request.isDescending() ? "<" : ">")
+                    + " (" + String.join(", ", orderBy.stream().map(column -> "?").toList()) + ")");
+            parameters.addAll(request.getAfter());
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        if (!orderBy.isEmpty()) {
+            String direction = request.isDescending() ? " DESC" : "";
+            sql.append(" ORDER BY ").append(String.join(direction + ", ", orderBy)).append(direction);
+        }
+
+        int limit = request.getLimit() == null ? defaultRows : request.getLimit();
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        limit = Math.min(limit, maxRows);
+        sql.append(" LIMIT ").append(limit);
+        if (request.getOffset() != null) {
+            if (request.getOffset() < 0) {
+                throw new IllegalArgumentException("Offset must not be negative");
+            }
+            sql.append(" OFFSET ").append(request.getOffset());
+        }
+        return new PreviewQuery(tableName, sql.toString(), parameters, columns, types, orderBy, limit);
+    }
+
+    // Writes {"columns": [...], "rows": [[...]], "rowCount": n, "after": [...], "elapsedMillis": t} row by row
+    public void stream(PreviewQuery query, OutputStream out) throws IOException {
+        long start = System.nanoTime();
+        log.info("Preview query: {}", query.sql());
+        try (Connection connection = clickHouseService.getConnection();
+             PreparedStatement statement = connection.prepareStatement(query.sql());
+             JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            statement.setQueryTimeout(timeoutSeconds);
+            for (int i = 0; i < query.parameters().size(); i++) {
+                statement.setString(i + 1, query.parameters().get(i));
+            }
+            int[] keyPositions = query.orderBy().stream().mapToInt(column -> query.columns().indexOf(column)).toArray();
+
+            json.writeStartObject();
+            json.writeArrayFieldStart("columns");
+            for (String column : query.columns()) {
+                json.writeStartObject();
+                json.writeStringField("name", column);
+                json.writeStringField("type", query.types().get(column));
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+
+            long rows = 0;
+            List<String> after = null;
+            json.writeArrayFieldStart("rows");
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int width = query.columns().size();
+                while (resultSet.next()) {
+                    json.writeStartArray();
+                    for (int i = 1; i <= width; i++) {
+                        writeValue(json, resultSet, i);
+                    }
+                    json.writeEndArray();
+                    rows++;
+                    // Only a full page can have a next one; its key is read off the last row
+                    if (rows == query.limit() && keyPositions.length > 0) {
+                        after = keyset(resultSet, keyPositions);
+                    }
+                }
+            }
+            json.writeEndArray();
+            json.writeNumberField("rowCount", rows);
+            json.writeFieldName("after");
+            if (after == null) {
+                json.writeNull();
+            } else {
+                json.writeStartArray();
+                for (String value : after) {
+                    json.writeString(value);
+                }
+                json.writeEndArray();
+            }
+            json.writeNumberField("elapsedMillis", (System.nanoTime() - start) / 1_000_000);
+            json.writeEndObject();
+            log.info("Previewed {} rows of table '{}'", rows, query.tableName());
+        } catch (SQLException e) {
+            log.error("Error previewing table '{}': {}", query.tableName(), e.getMessage(), e);
+            throw new RuntimeException("Preview failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Numbers and booleans stay JSON scalars; everything else is sent as the driver's text form
+    private static void writeValue(JsonGenerator json, ResultSet resultSet, int index) throws SQLException, IOException {
+        Object value = resultSet.getObject(index);
+        if (value == null) {
+            json.writeNull();
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.writeObject(value);
+        } else {
+            json.writeString(resultSet.getString(index));
+        }
+    }
+
+    private static List<String> keyset(ResultSet resultSet, int[] keyPositions) throws SQLException {
+        List<String> values = new ArrayList<>(keyPositions.length);
+        for (int position : keyPositions) {
+            values.add(resultSet.getString(position + 1));
+        }
+        return values;
+    }
+
+    private String condition(Map<String, String> types, PreviewFilter filter, List<String> parameters) {
+        if (filter.getColumn() == null || !types.containsKey(filter.getColumn())) {
+            throw new IllegalArgumentException("Unknown filter column '" + filter.getColumn() + "'");
+        }
+        FilterOperator operator = filter.getOperator() == null ? FilterOperator.EQ : filter.getOperator();
+        String column = filter.getColumn();
+        switch (operator) {
+            case IS_NULL, IS_NOT_NULL -> {
+                return column + " " + operator.getSql();
+            }
+            case IN, NOT_IN -> {
+                if (filter.getValues() == null || filter.getValues().isEmpty()) {
+                    throw new IllegalArgumentException("Filter " + operator + " on '" + column + "' needs values");
+                }
+                parameters.addAll(filter.getValues());
+                return column + " " + operator.getSql() + " (" + String.join(", ", filter.getValues().stream().map(value -> "?").toList()) + ")";
+            }
+            default -> {
+                if (filter.getValue() == null) {
+                    throw new IllegalArgumentException("Filter " + operator + " on '" + column + "' needs a value");
+                }
+                parameters.add(filter.getValue());
+                return column + " " + operator.getSql() + " ?";
+            }
+        }
+    }
+
+    private static List<String> checkColumns(Map<String, String> types, List<String> requested) {
+        for (String column : requested) {
+            if (!types.containsKey(column)) {
+                throw new IllegalArgumentException("Unknown column '" + column + "'");
+            }
+        }
+        return List.copyOf(requested);
+    }
+
+    private Map<String, String> tableColumns(String tableName) {
+        try {
+            if (tableName == null || !clickHouseService.getTables().contains(tableName)) {
+                throw new IllegalArgumentException("Unknown table '" + tableName + "'");
+            }
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Error listing tables: " + e.getMessage(), e);
+        }
+        return clickHouseService.describeTable(tableName);
+    }
+
+    private boolean hasSamplingKey(String tableName) {
+        String query = "SELECT sampling_key FROM system.tables WHERE database = currentDatabase() AND name = ?";
+        try (Connection connection = clickHouseService.getConnection();
+             PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, tableName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getString(1) != null && !resultSet.getString(1).isEmpty();
+            }
+        } catch (SQLException e) {
+            log.error("Error reading sampling key of table '{}': {}", tableName, e.getMessage(), e);
+            throw new RuntimeException("Error reading sampling key", e);
+        }
+    }
+}
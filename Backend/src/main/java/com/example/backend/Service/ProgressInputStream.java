@@ -0,0 +1,41 @@
+package com.example.backend.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Reports every byte read from the wrapped stream to a ProgressListener
+class ProgressInputStream extends FilterInputStream {
+
+    private final ProgressListener progress;
+
+    ProgressInputStream(InputStream in, ProgressListener progress) {
+        super(in);
+        this.progress = progress;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            progress.onBytes(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            progress.onBytes(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        progress.onBytes(skipped);
+        return skipped;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.backend.Service;
+
+// Receives row and byte counts from long-running transfers; implementations may abort the transfer by throwing
+public interface ProgressListener {
+
+    ProgressListener NONE = new ProgressListener() {
+    };
+
+    default void onRows(long rows) {
+    }
+
+    default void onBytes(long bytes) {
+    }
+
+    default ProgressListener and(ProgressListener other) {
+        ProgressListener first = this;
+        return new ProgressListener() {
+            @Override
+            public void onRows(long rows) {
+                first.onRows(rows);
+                other.onRows(rows);
+            }
+
+            @Override
+            public void onBytes(long bytes) {
+                first.onBytes(bytes);
+                other.onBytes(bytes);
+            }
+        };
+    }
+}
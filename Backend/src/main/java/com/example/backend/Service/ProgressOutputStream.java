@@ -0,0 +1,29 @@
+package com.example.backend.Service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Reports every byte written to the wrapped stream to a ProgressListener
+class ProgressOutputStream extends FilterOutputStream {
+
+    private final ProgressListener progress;
+
+    ProgressOutputStream(OutputStream out, ProgressListener progress) {
+        super(out);
+        this.progress = progress;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        progress.onBytes(1);
+    }
+
+    // FilterOutputStream would split this into single-byte writes
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        out.write(buffer, offset, length);
+        progress.onBytes(length);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.backend.Service;
+
+import com.clickhouse.client.ClickHouseException;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// How often and how patiently an insert worker retries a batch. Only failures that a later attempt can
+// plausibly get past are retried: lost connections, timeouts and server-side overload. Bad data is not.
+public record RetryPolicy(int maxAttempts, long initialBackoffMs, long maxBackoffMs) {
+
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    // TIMEOUT_EXCEEDED, TOO_MANY_SIMULTANEOUS_QUERIES, SOCKET_TIMEOUT, NETWORK_ERROR, MEMORY_LIMIT_EXCEEDED,
+    // TABLE_IS_READ_ONLY, TOO_MANY_PARTS, UNKNOWN_STATUS_OF_INSERT, KEEPER_EXCEPTION
+    private static final Set<Integer> TRANSIENT_CODES = Set.of(159, 202, 209, 210, 241, 242, 252, 319, 999);
+
+    public boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException
+                    && (TRANSIENT_CODES.contains(sqlException.getErrorCode())
+                    || (sqlException.getSQLState() != null && sqlException.getSQLState().startsWith("08")))) {
+                return true;
+            }
+            if (cause instanceof ClickHouseException clickHouseException && TRANSIENT_CODES.contains(clickHouseException.getErrorCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Exponential with jitter, so workers that failed together do not all come back at the same moment
+    public long backoffMillis(int attempt) {
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+}
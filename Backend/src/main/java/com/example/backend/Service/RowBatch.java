@@ -0,0 +1,115 @@
+package com.example.backend.Service;
+
+import java.util.Arrays;
+
+// A batch of rows for one column layout, stored row-major in a single flat array; cleared and refilled
+// between batches so a bulk load allocates no per-row containers
+public final class RowBatch {
+
+    private final int width;
+    private final int capacity;
+    private final String[] cells;
+    private int limit;
+    private int size;
+    private long sequence;
+
+    public RowBatch(int width, int capacity) {
+        this.width = width;
+        this.capacity = capacity;
+        this.cells = new String[width * capacity];
+        this.limit = capacity;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // Fills stop at the limit, so a pooled batch can serve any size up to its capacity
+    public void limit(int limit) {
+        if (limit <= 0 || limit > capacity) {
+            throw new IllegalArgumentException("Batch limit must be between 1 and " + capacity);
+        }
+        this.limit = limit;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size >= limit;
+    }
+
+    // Position of this batch in its run, counted from 0 in source order
+    public long sequence() {
+        return sequence;
+    }
+
+    public void sequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String get(int row, int column) {
+        return cells[row * width + column];
+    }
+
+    // Reads one more row from the source; false when the source is exhausted or the batch is full
+    public boolean append(RowReader reader) {
+        if (size >= limit || !reader.next(cells, size * width)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    // Reads rows until the batch is full or the source is exhausted, returning how many were added
+    public int fill(RowReader reader) {
+        int before = size;
+        while (size < limit && reader.next(cells, size * width)) {
+            size++;
+        }
+        return size - before;
+    }
+
+    // Rough heap footprint of the held values: a compact string costs about 40 bytes besides one byte per char
+    public long estimatedBytes() {
+        long bytes = (long) size * width * Integer.BYTES;
+        for (int i = 0, n = size * width; i < n; i++) {
+            String cell = cells[i];
+            if (cell != null) {
+                bytes += 40 + cell.length();
+            }
+        }
+        return bytes;
+    }
+
+    public void clear() {
+        // Drop the cell references so a pooled batch does not keep the previous strings alive
+        Arrays.fill(cells, 0, size * width, null);
+        size = 0;
+    }
+
+    // Replays this batch's rows ahead of the remaining source rows
+    public RowReader replayThen(RowReader rest) {
+        return new RowReader() {
+            private int next;
+
+            @Override
+            public boolean next(String[] target, int offset) {
+                if (next < size) {
+                    System.arraycopy(cells, next++ * width, target, offset, width);
+                    return true;
+                }
+                return rest.next(target, offset);
+            }
+        };
+    }
+}
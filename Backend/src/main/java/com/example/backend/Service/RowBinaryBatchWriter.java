@@ -0,0 +1,60 @@
+package com.example.backend.Service;
+
+import com.clickhouse.client.ClickHouseRequest;
+import com.clickhouse.client.ClickHouseResponse;
+import com.clickhouse.data.ClickHouseFormat;
+import com.clickhouse.jdbc.ClickHouseStatement;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Streams each batch as a single RowBinary insert, encoding cells straight into the request body
+public class RowBinaryBatchWriter implements BatchWriter {
+
+    private final Connection connection;
+    private final Statement statement;
+    private final ClickHouseStatement clickHouseStatement;
+    private final String insertQuery;
+    private final RowBinaryEncoder encoder;
+
+    public RowBinaryBatchWriter(Connection connection, String insertQuery, RowBinaryEncoder encoder) throws SQLException {
+        this.connection = connection;
+        this.insertQuery = insertQuery;
+        this.encoder = encoder;
+        try {
+            this.statement = connection.createStatement();
+            this.clickHouseStatement = statement.unwrap(ClickHouseStatement.class);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(RowBatch batch, String deduplicationToken) throws Exception {
+        ClickHouseRequest.Mutation request = clickHouseStatement.write();
+        if (deduplicationToken != null) {
+            request.set("insert_deduplication_token", deduplicationToken);
+        }
+        ClickHouseResponse response = request
+                .query(insertQuery)
+                .format(ClickHouseFormat.RowBinary)
+                .data(output -> {
+                    for (int row = 0; row < batch.size(); row++) {
+                        encoder.writeRow(output, batch, row);
+                    }
+                })
+                .executeAndWait();
+        response.close();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            statement.close();
+        } finally {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.backend.Service;
+
+import com.clickhouse.data.format.BinaryStreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.UUID;
+
+// Encodes string cells into ClickHouse RowBinary using one typed encoder per column, resolved once per table
+public class RowBinaryEncoder {
+
+    private static final DateTimeFormatter DATE_TIME = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .optionalStart().appendLiteral('T').optionalEnd()
+            .optionalStart().appendLiteral(' ').optionalEnd()
+            .append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .toFormatter();
+
+    @FunctionalInterface
+    interface ColumnEncoder {
+        void encode(OutputStream out, String value) throws IOException;
+    }
+
+    private final ColumnEncoder[] encoders;
+
+    public RowBinaryEncoder(List<String> columnTypes, TimeZone serverTimeZone) {
+        this.encoders = new ColumnEncoder[columnTypes.size()];
+        for (int i = 0; i < encoders.length; i++) {
+            encoders[i] = forType(columnTypes.get(i).trim(), serverTimeZone);
+        }
+    }
+
+    public void writeRow(OutputStream out, RowBatch batch, int row) throws IOException {
+        for (int i = 0; i < encoders.length; i++) {
+            encoders[i].encode(out, batch.get(row, i));
+        }
+    }
+
+    static ColumnEncoder forType(String type, TimeZone serverTimeZone) {
+        if (type.startsWith("Nullable(")) {
+            ColumnEncoder inner = forType(innerType(type), serverTimeZone);
+            return (out, value) -> {
+                if (value == null || value.isEmpty()) {
+                    BinaryStreamUtils.writeNull(out);
+                } else {
+                    BinaryStreamUtils.writeNonNull(out);
+                    inner.encode(out, value);
+                }
+            };
+        }
+        if (type.startsWith("LowCardinality(")) {
+            // RowBinary carries LowCardinality values as their plain inner type
+            return forType(innerType(type), serverTimeZone);
+        }
+        if (type.startsWith("FixedString(")) {
+            int length = Integer.parseInt(innerType(type));
+            return (out, value) -> BinaryStreamUtils.writeFixedString(out, value == null ? "" : value, length);
+        }
+        if (type.startsWith("DateTime64(")) {
+            String[] args = innerType(type).split(",");
+            int scale = Integer.parseInt(args[0].trim());
+            TimeZone zone = args.length > 1 ? TimeZone.getTimeZone(unquote(args[1])) : serverTimeZone;
+            return (out, value) -> BinaryStreamUtils.writeDateTime64(out, parseDateTime(value), scale, zone);
+        }
+        if (type.startsWith("DateTime(")) {
+            TimeZone zone = TimeZone.getTimeZone(unquote(innerType(type)));
+            return (out, value) -> BinaryStreamUtils.writeDateTime32(out, parseDateTime(value), zone);
+        }
+        if (type.startsWith("Decimal(")) {
+            String[] args = innerType(type).split(",");
+            int precision = Integer.parseInt(args[0].trim());
+            int scale = Integer.parseInt(args[1].trim());
+            return (out, value) -> BinaryStreamUtils.writeDecimal(out, isBlank(value) ? BigDecimal.ZERO : new BigDecimal(value.trim()), precision, scale);
+        }
+
+        return switch (type) {
+            case "String" -> (out, value) -> BinaryStreamUtils.writeString(out, value == null ? "" : value);
+            case "Bool" -> (out, value) -> BinaryStreamUtils.writeBoolean(out, !isBlank(value) && (value.equalsIgnoreCase("true") || value.equals("1")));
+            case "Int8" -> (out, value) -> BinaryStreamUtils.writeInt8(out, isBlank(value) ? 0 : Integer.parseInt(value.trim()));
+            case "UInt8" -> (out, value) -> BinaryStreamUtils.writeUnsignedInt8(out, isBlank(value) ? 0 : Integer.parseInt(value.trim()));
+            case "Int16" -> (out, value) -> BinaryStreamUtils.writeInt16(out, isBlank(value) ? 0 : Integer.parseInt(value.trim()));
+            case "UInt16" -> (out, value) -> BinaryStreamUtils.writeUnsignedInt16(out, isBlank(value) ? 0 : Integer.parseInt(value.trim()));
+            case "Int32" -> (out, value) -> BinaryStreamUtils.writeInt32(out, isBlank(value) ? 0 : Integer.parseInt(value.trim()));
+            case "UInt32" -> (out, value) -> BinaryStreamUtils.writeUnsignedInt32(out, isBlank(value) ? 0 : Long.parseLong(value.trim()));
+            case "Int64" -> (out, value) -> BinaryStreamUtils.writeInt64(out, isBlank(value) ? 0 : Long.parseLong(value.trim()));
+            case "UInt64" -> (out, value) -> BinaryStreamUtils.writeUnsignedInt64(out, isBlank(value) ? BigInteger.ZERO : new BigInteger(value.trim()));
+            case "Float32" -> (out, value) -> BinaryStreamUtils.writeFloat32(out, isBlank(value) ? 0 : Float.parseFloat(value.trim()));
+            case "Float64" -> (out, value) -> BinaryStreamUtils.writeFloat64(out, isBlank(value) ? 0 : Double.parseDouble(value.trim()));
+            case "Date" -> (out, value) -> BinaryStreamUtils.writeDate(out, parseDate(value));
+            case "Date32" -> (out, value) -> BinaryStreamUtils.writeDate32(out, parseDate(value));
+            case "DateTime" -> (out, value) -> BinaryStreamUtils.writeDateTime32(out, parseDateTime(value), serverTimeZone);
+            case "UUID" -> (out, value) -> BinaryStreamUtils.writeUuid(out, isBlank(value) ? new UUID(0, 0) : UUID.fromString(value.trim()));
+            default -> throw new IllegalArgumentException("Column type '" + type + "' is not supported by the RowBinary insert mode");
+        };
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (isBlank(value)) {
+            return LocalDate.EPOCH;
+        }
+        String trimmed = value.trim();
+        return LocalDate.parse(trimmed.length() > 10 ? trimmed.substring(0, 10) : trimmed);
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        if (isBlank(value)) {
+            return LocalDateTime.of(1970, 1, 1, 0, 0);
+        }
+        String trimmed = value.trim();
+        if (trimmed.length() == 10) {
+            return LocalDate.parse(trimmed).atStartOfDay();
+        }
+        return LocalDateTime.parse(trimmed, DATE_TIME);
+    }
+
+    private static String innerType(String type) {
+        return type.substring(type.indexOf('(') + 1, type.lastIndexOf(')'));
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("'") && trimmed.endsWith("'")) {
+            return trimmed.substring(1, trimmed.length() - 1);
+        }
+        return trimmed;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
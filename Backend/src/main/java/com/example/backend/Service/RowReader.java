@@ -0,0 +1,28 @@
+package com.example.backend.Service;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Pulls rows of a fixed column layout into a caller-owned cell array, one row per call
+@FunctionalInterface
+public interface RowReader {
+
+    // Writes the next row's cells at cells[offset .. offset + width); false once the source is exhausted
+    boolean next(String[] cells, int offset);
+
+    // Adapts keyed rows; each column is looked up once per row by its position in the layout
+    static RowReader fromMaps(List<String> columns, Iterator<Map<String, String>> rows) {
+        String[] names = columns.toArray(new String[0]);
+        return (cells, offset) -> {
+            if (!rows.hasNext()) {
+                return false;
+            }
+            Map<String, String> row = rows.next();
+            for (int i = 0; i < names.length; i++) {
+                cells[offset + i] = row.get(names[i]);
+            }
+            return true;
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.backend.Service;
+
+import com.example.backend.DTO.MetadataCacheStatsDTO;
+import com.example.backend.Model.ClickHouseConnection;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Table lists and column definitions per (connection, database), expired after a TTL and evicted least-recently-used
+@Component
+@Slf4j
+public class SchemaMetadataCache {
+
+    @Value("${clickhouse.metadata.ttl-ms:60000}")
+    private long ttlMs = 60_000L;
+
+    @Value("${clickhouse.metadata.max-entries:1000}")
+    private int maxEntries = 1000;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    // Guards entries and loads; a ReentrantLock rather than a monitor so virtual threads never pin on it
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // One token per key with a load in flight. Invalidating a key drops its token, so a load that raced with the
+    // invalidation is not written back, while loads of other tables and other targets are unaffected.
+    private final Map<MetadataKey, Object> loads = new HashMap<>();
+
+    private final Map<MetadataKey, CachedValue> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<MetadataKey, CachedValue> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public List<String> getTables(ClickHouseConnection settings, Supplier<List<String>> loader) {
+        return get(MetadataKey.of(settings, null), () -> List.copyOf(loader.get()));
+    }
+
+    public Map<String, String> getColumns(ClickHouseConnection settings, String tableName, Supplier<Map<String, String>> loader) {
+        return get(MetadataKey.of(settings, tableName), () -> Collections.unmodifiableMap(new LinkedHashMap<>(loader.get())));
+    }
+
+    // Drops the table's columns together with the table list, which may now be missing it
+    public void invalidateTable(ClickHouseConnection settings, String tableName) {
+        lock.lock();
+        try {
+            MetadataKey columnsKey = MetadataKey.of(settings, tableName);
+            MetadataKey tablesKey = MetadataKey.of(settings, null);
+            entries.remove(columnsKey);
+            entries.remove(tablesKey);
+            loads.remove(columnsKey);
+            loads.remove(tablesKey);
+        } finally {
+            lock.unlock();
+        }
+        invalidations.increment();
+    }
+
+    // Drops everything cached for one server and database, e.g. when its last session goes away
+    public void invalidateTarget(ClickHouseConnection settings) {
+        MetadataKey target = MetadataKey.of(settings, null);
+        lock.lock();
+        try {
+            entries.keySet().removeIf(key -> key.sameDatabase(target));
+            loads.keySet().removeIf(key -> key.sameDatabase(target));
+        } finally {
+            lock.unlock();
+        }
+        invalidations.increment();
+    }
+
+    // Replaces everything cached for the connection with a full snapshot of its database
+    public void replaceAll(ClickHouseConnection settings, Map<String, Map<String, String>> schema) {
+        long now = System.nanoTime();
+        List<String> tables = List.copyOf(schema.keySet());
+        lock.lock();
+        try {
+            MetadataKey tablesKey = MetadataKey.of(settings, null);
+            entries.keySet().removeIf(key -> key.sameDatabase(tablesKey));
+            loads.keySet().removeIf(key -> key.sameDatabase(tablesKey));
+            entries.put(tablesKey, new CachedValue(tables, now));
+            schema.forEach((table, columns) -> entries.put(MetadataKey.of(settings, table),
+                    new CachedValue(Collections.unmodifiableMap(new LinkedHashMap<>(columns)), now)));
+        } finally {
+            lock.unlock();
+        }
+        refreshes.increment();
+        log.debug("Refreshed schema metadata for {} tables", tables.size());
+    }
+
+    public MetadataCacheStatsDTO getStats() {
+        int size;
+        lock.lock();
+        try {
+            size = entries.size();
+        } finally {
+            lock.unlock();
+        }
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return new MetadataCacheStatsDTO(
+                size,
+                maxEntries,
+                ttlMs,
+                hitCount,
+                misses.sum(),
+                lookups == 0 ? 0 : hitCount / (double) lookups,
+                evictions.sum(),
+                invalidations.sum(),
+                refreshes.sum()
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(MetadataKey key, Supplier<T> loader) {
+        long now = System.nanoTime();
+        Object token = new Object();
+        lock.lock();
+        try {
+            CachedValue cached = entries.get(key);
+            if (cached != null && now - cached.loadedAt() < ttlMs * 1_000_000) {
+                hits.increment();
+                return (T) cached.value();
+            }
+            // A later load of the same key takes over, so only the most recent one is written back
+            loads.put(key, token);
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        T value = null;
+        try {
+            // Loaded outside the lock so a slow query never blocks lookups for other tables
+            value = loader.get();
+        } finally {
+            lock.lock();
+            try {
+                if (loads.remove(key, token) && value != null) {
+                    entries.put(key, new CachedValue(value, now));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    private record MetadataKey(String host, int port, String database, String username, String table) {
+        static MetadataKey of(ClickHouseConnection settings, String table) {
+            return new MetadataKey(settings.getHost(), settings.getPort(), settings.getDatabase(), settings.getUsername(), table);
+        }
+
+        boolean sameDatabase(MetadataKey other) {
+            return port == other.port && Objects.equals(host, other.host)
+                    && Objects.equals(database, other.database) && Objects.equals(username, other.username);
+        }
+    }
+
+    private record CachedValue(Object value, long loadedAt) {
+    }
+}
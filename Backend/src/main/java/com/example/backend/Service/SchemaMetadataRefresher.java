@@ -0,0 +1,65 @@
+package com.example.backend.Service;
+
+import com.example.backend.Model.ClickHouseConnection;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the schema metadata cache warm so dashboard lookups never wait on DESCRIBE TABLE; off unless an interval is set
+@Component
+@Slf4j
+public class SchemaMetadataRefresher {
+
+    @Value("${clickhouse.metadata.refresh-interval-ms:0}")
+    private long refreshIntervalMs;
+
+    @Autowired
+    private ClickHouseService clickHouseService;
+
+    @Autowired
+    private ConnectionRegistry connectionRegistry;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (refreshIntervalMs <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("metadata-refresh").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Refreshing schema metadata every {} ms", refreshIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Once per connected target, however many sessions share it
+    private void refresh() {
+        Set<ClickHouseConnection> refreshed = new HashSet<>();
+        for (ConnectionProfile profile : connectionRegistry.profiles()) {
+            if (!refreshed.add(profile.getSettings())) {
+                continue;
+            }
+            try {
+                connectionRegistry.runAs(profile, clickHouseService::refreshMetadata);
+            } catch (RuntimeException e) {
+                // A failed refresh leaves the existing entries to expire on their own TTL
+                log.warn("Background schema metadata refresh for session '{}' failed: {}", profile.getTenant(), e.getMessage());
+            }
+        }
+    }
+}
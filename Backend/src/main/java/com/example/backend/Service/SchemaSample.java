@@ -0,0 +1,153 @@
+package com.example.backend.Service;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Just enough of a self-describing file for ClickHouse to infer its schema from, or of a delimited one to check
+// against the table, small enough to inline in a query. Streams are rewound afterwards, so the whole body can
+// still be forwarded untouched.
+final class SchemaSample {
+
+    static final int MAX_BYTES = 1 << 20;
+
+    private static final byte[] PARQUET_MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ARROW_FILE_MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ARROW_END_OF_STREAM = {-1, -1, -1, -1, 0, 0, 0, 0};
+
+    private SchemaSample() {
+    }
+
+    // Whole lines from the head of the body
+    static byte[] ndjson(BufferedInputStream input) throws IOException {
+        input.mark(MAX_BYTES + 1);
+        byte[] head = input.readNBytes(MAX_BYTES);
+        input.reset();
+        int end = head.length;
+        if (end == MAX_BYTES) {
+            while (end > 0 && head[end - 1] != '\n') {
+                end--;
+            }
+            if (end == 0) {
+                throw new IllegalArgumentException("First JSON line is longer than " + MAX_BYTES + " bytes");
+            }
+        }
+        return Arrays.copyOf(head, end);
+    }
+
+    // The header line and up to the given number of rows after it. In CSV a newline inside double quotes is part
+    // of the value, so only unquoted newlines end a row; TSV escapes its newlines and has no quoting.
+    static byte[] delimited(BufferedInputStream input, int rows, boolean quoted) throws IOException {
+        input.mark(MAX_BYTES + 1);
+        byte[] head = input.readNBytes(MAX_BYTES);
+        input.reset();
+        boolean inQuotes = false;
+        int lines = 0;
+        int end = 0;
+        for (int i = 0; i < head.length && lines <= rows; i++) {
+            if (quoted && head[i] == '"') {
+                inQuotes = !inQuotes;
+            } else if (head[i] == '\n' && !inQuotes) {
+                lines++;
+                end = i + 1;
+            }
+        }
+        // A body shorter than the limit ends with its last row, newline or not
+        if (head.length < MAX_BYTES && lines <= rows) {
+            end = head.length;
+        }
+        if (end == 0) {
+            throw new IllegalArgumentException("Header line is longer than " + MAX_BYTES + " bytes");
+        }
+        return Arrays.copyOf(head, end);
+    }
+
+    // The schema message every Arrow stream opens with, then an end-of-stream marker: a valid stream without
+    // batches. The file format carries the same message right after its magic, so it is sampled as a stream too.
+    static byte[] arrow(BufferedInputStream input, boolean fileFormat) throws IOException {
+        input.mark(MAX_BYTES + 16);
+        try {
+            if (fileFormat) {
+                byte[] magic = input.readNBytes(8);
+                if (!startsWith(magic, ARROW_FILE_MAGIC)) {
+                    throw new IllegalArgumentException("Not an Arrow IPC file");
+                }
+            }
+            ByteArrayOutputStream sample = new ByteArrayOutputStream();
+            byte[] prefix = readFully(input, 4, "Arrow schema message");
+            int length = littleEndianInt(prefix, 0);
+            // Writers since Arrow 0.15 put a continuation marker before the length
+            if (length == -1) {
+                sample.write(prefix);
+                prefix = readFully(input, 4, "Arrow schema message");
+                length = littleEndianInt(prefix, 0);
+            }
+            if (length <= 0 || length > MAX_BYTES) {
+                throw new IllegalArgumentException("Arrow schema message is missing or larger than " + MAX_BYTES + " bytes");
+            }
+            sample.write(prefix);
+            sample.write(readFully(input, length, "Arrow schema message"));
+            sample.write(ARROW_END_OF_STREAM);
+            return sample.toByteArray();
+        } finally {
+            input.reset();
+        }
+    }
+
+    // Parquet keeps its schema in the footer. Small files are sent whole; for larger ones the footer is framed
+    // by the magic bytes on its own, which is all a schema read looks at.
+    static byte[] parquet(InputStreamSource source, long size) throws IOException {
+        if (size < 12) {
+            throw new IllegalArgumentException("Not a Parquet file");
+        }
+        byte[] tail;
+        try (InputStream input = source.getInputStream()) {
+            input.skipNBytes(size - 8);
+            tail = readFully(input, 8, "Parquet footer");
+        }
+        if (!Arrays.equals(tail, 4, 8, PARQUET_MAGIC, 0, 4)) {
+            throw new IllegalArgumentException("Not a Parquet file");
+        }
+        if (size <= MAX_BYTES) {
+            try (InputStream input = source.getInputStream()) {
+                return readFully(input, (int) size, "Parquet file");
+            }
+        }
+
+        int length = littleEndianInt(tail, 0);
+        if (length <= 0 || length > size - 12 || length > MAX_BYTES - 12) {
+            throw new IllegalArgumentException("Parquet footer is corrupt or larger than " + MAX_BYTES + " bytes");
+        }
+        ByteArrayOutputStream sample = new ByteArrayOutputStream(length + 12);
+        sample.write(PARQUET_MAGIC);
+        try (InputStream input = source.getInputStream()) {
+            input.skipNBytes(size - 8 - length);
+            sample.write(readFully(input, length, "Parquet footer"));
+        }
+        sample.write(tail);
+        return sample.toByteArray();
+    }
+
+    private static byte[] readFully(InputStream input, int length, String what) throws IOException {
+        byte[] bytes = input.readNBytes(length);
+        if (bytes.length < length) {
+            throw new IllegalArgumentException(what + " is truncated");
+        }
+        return bytes;
+    }
+
+    private static int littleEndianInt(byte[] bytes, int offset) {
+        return ByteBuffer.wrap(bytes, offset, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        return bytes.length >= prefix.length && Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length);
+    }
+}
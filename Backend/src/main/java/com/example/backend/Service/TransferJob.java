@@ -0,0 +1,155 @@
+package com.example.backend.Service;
+
+import com.example.backend.DTO.JobStatusDTO;
+import com.example.backend.Model.JobStatus;
+import com.example.backend.Model.JobType;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Live state of one background transfer; the running work reports into it and readers take snapshots
+@Getter
+class TransferJob implements ProgressListener {
+
+    private final String id = UUID.randomUUID().toString();
+    private final JobType type;
+    private final String owner;
+    private final String table;
+    private final Instant submittedAt = Instant.now();
+
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private volatile long totalRows;
+    private volatile long totalBytes;
+
+    private volatile JobStatus status = JobStatus.QUEUED;
+    private volatile boolean cancelRequested;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String message;
+    private volatile Object result;
+    private volatile Future<?> future;
+    @Getter(AccessLevel.NONE)
+    private final ReentrantLock stateLock = new ReentrantLock();
+
+    TransferJob(JobType type, String owner, String table) {
+        this.type = type;
+        this.owner = owner;
+        this.table = table;
+    }
+
+    @Override
+    public void onRows(long count) {
+        checkCancelled();
+        rows.add(count);
+    }
+
+    @Override
+    public void onBytes(long count) {
+        checkCancelled();
+        bytes.add(count);
+    }
+
+    void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    boolean markRunning() {
+        stateLock.lock();
+        try {
+            if (status != JobStatus.QUEUED) {
+                return false;
+            }
+            status = JobStatus.RUNNING;
+            startNanos = System.nanoTime();
+            startedAt = Instant.now();
+            return true;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    boolean finish(JobStatus finalStatus, String message, Object result) {
+        stateLock.lock();
+        try {
+            if (status.isFinished()) {
+                return false;
+            }
+            this.status = finalStatus;
+            this.message = message;
+            this.result = result;
+            this.endNanos = System.nanoTime();
+            this.finishedAt = Instant.now();
+            return true;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    JobStatusDTO toDTO() {
+        long doneRows = rows.sum();
+        long doneBytes = bytes.sum();
+        long elapsedNanos = startNanos == 0 ? 0 : (endNanos != 0 ? endNanos : System.nanoTime()) - startNanos;
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        return new JobStatusDTO(
+                id,
+                type,
+                owner,
+                table,
+                status,
+                doneRows,
+                totalRows,
+                doneBytes,
+                totalBytes,
+                seconds > 0 ? doneRows / seconds : 0,
+                seconds > 0 ? doneBytes / seconds : 0,
+                status == JobStatus.RUNNING ? estimateRemainingSeconds(seconds, doneRows, doneBytes) : null,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                submittedAt,
+                startedAt,
+                finishedAt,
+                message,
+                result
+        );
+    }
+
+    // Bytes are the better yardstick when known (uploads), rows otherwise; no estimate without a total
+    private Long estimateRemainingSeconds(double seconds, long doneRows, long doneBytes) {
+        double fraction;
+        if (totalBytes > 0 && doneBytes > 0) {
+            fraction = Math.min(1.0, doneBytes / (double) totalBytes);
+        } else if (totalRows > 0 && doneRows > 0) {
+            fraction = Math.min(1.0, doneRows / (double) totalRows);
+        } else {
+            return null;
+        }
+        return Math.round(seconds / fraction - seconds);
+    }
+
+    private void checkCancelled() {
+        if (cancelRequested) {
+            throw new CancellationException("Job " + id + " was cancelled");
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.backend.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// All backend meters in one place. Per-table meters are resolved once per transfer and cached, so the hot
+// loops only ever touch a counter or timer they already hold, once per batch or block rather than per row.
+@Component
+public class TransferMetrics {
+
+    public static final String INGEST = "ingest";
+    public static final String EXPORT = "export";
+
+    // User-named tables become tag values; past this many, further tables share one series
+    private static final int MAX_TABLE_TAGS = 500;
+    private static final String OTHER_TABLE = "_other";
+
+    private final MeterRegistry registry;
+    private final Set<String> tables = ConcurrentHashMap.newKeySet();
+    private final Map<String, TableMeters> tableMeters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> batchTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> parseTimers = new ConcurrentHashMap<>();
+    private final Map<String, IngestControlGauges> controlGauges = new ConcurrentHashMap<>();
+    private final Timer jwtCached;
+    private final Timer jwtVerified;
+    private final Timer jwtRejected;
+
+    @Autowired
+    public TransferMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.jwtCached = jwtTimer("cached");
+        this.jwtVerified = jwtTimer("verified");
+        this.jwtRejected = jwtTimer("rejected");
+    }
+
+    // Meters that record nothing, for services constructed outside Spring (benchmarks)
+    public static TransferMetrics noop() {
+        return new TransferMetrics(new CompositeMeterRegistry());
+    }
+
+    public TableMeters table(String tableName, String operation) {
+        String table = tableTag(tableName);
+        return tableMeters.computeIfAbsent(table + '\u0000' + operation, key -> new TableMeters(
+                Counter.builder("clickhouse.transfer.rows")
+                        .description("Rows moved between flat files and ClickHouse")
+                        .tag("table", table)
+                        .tag("operation", operation)
+                        .register(registry),
+                Counter.builder("clickhouse.transfer.bytes")
+                        .description("File bytes read for ingest or written for export")
+                        .baseUnit("bytes")
+                        .tag("table", table)
+                        .tag("operation", operation)
+                        .register(registry)
+        ));
+    }
+
+    // Feeds the insert latency histogram and the ingested row count from the pipeline workers
+    public BatchIngestionPipeline.BatchObserver batchObserver(String tableName, String mode) {
+        Timer timer = batchInsertTimer(tableName, mode);
+        Counter rows = table(tableName, INGEST).rows();
+        return (count, nanos) -> {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            rows.increment(count);
+        };
+    }
+
+    public Timer batchInsertTimer(String tableName, String mode) {
+        String table = tableTag(tableName);
+        return batchTimers.computeIfAbsent(table + '\u0000' + mode, key -> Timer.builder("clickhouse.insert.batch")
+                .description("Latency of one batch insert")
+                .tag("table", table)
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(registry));
+    }
+
+    // The adaptive ingest controller's latest decisions; concurrent runs into one table share the series
+    public IngestControlGauges ingestControl(String tableName) {
+        String table = tableTag(tableName);
+        return controlGauges.computeIfAbsent(table, key -> {
+            IngestControlGauges gauges = new IngestControlGauges(new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong());
+            controlGauge("clickhouse.ingest.batch.rows", "Rows per insert batch chosen by the ingest controller", table, gauges.batchRows());
+            controlGauge("clickhouse.ingest.concurrency", "Insert workers the ingest controller lets run at once", table, gauges.concurrency());
+            controlGauge("clickhouse.ingest.row.bytes", "Estimated in-memory size of one row", table, gauges.rowBytes());
+            controlGauge("clickhouse.ingest.parts", "Most active parts in one partition of the table", table, gauges.parts());
+            return gauges;
+        });
+    }
+
+    private void controlGauge(String name, String description, String table, AtomicLong value) {
+        Gauge.builder(name, value, AtomicLong::get)
+                .description(description)
+                .tag("table", table)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    public Timer csvParseTimer(String tableName) {
+        String table = tableTag(tableName);
+        return parseTimers.computeIfAbsent(table, key -> Timer.builder("flatfile.csv.parse")
+                .description("Time spent parsing and converting CSV rows per upload")
+                .tag("table", table)
+                .register(registry));
+    }
+
+    public Timer connectionAcquireTimer(String poolName) {
+        return Timer.builder("clickhouse.pool.acquire")
+                .description("Time to obtain a pooled ClickHouse connection")
+                .tag("pool", poolName)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    public void recordJwt(long nanos, boolean cached, boolean valid) {
+        (valid ? (cached ? jwtCached : jwtVerified) : jwtRejected).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void jobGauge(String status, Supplier<Number> count) {
+        Gauge.builder("transfer.jobs", count)
+                .description("Background transfer jobs by status")
+                .tag("status", status)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    private Timer jwtTimer(String result) {
+        return Timer.builder("jwt.validation")
+                .description("JWT verification time per request")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private String tableTag(String tableName) {
+        if (tableName == null || !tables.contains(tableName) && tables.size() >= MAX_TABLE_TAGS) {
+            return OTHER_TABLE;
+        }
+        tables.add(tableName);
+        return tableName;
+    }
+
+    public record IngestControlGauges(AtomicLong batchRows, AtomicLong concurrency, AtomicLong rowBytes, AtomicLong parts) {
+    }
+
+    public record TableMeters(Counter rows, Counter bytes) {
+
+        // For paths where rows are already counted per batch and only the file bytes are left
+        public ProgressListener byteListener() {
+            return new ProgressListener() {
+                @Override
+                public void onBytes(long count) {
+                    bytes.increment(count);
+                }
+            };
+        }
+
+        public ProgressListener listener() {
+            return new ProgressListener() {
+                @Override
+                public void onRows(long count) {
+                    rows.increment(count);
+                }
+
+                @Override
+                public void onBytes(long count) {
+                    bytes.increment(count);
+                }
+            };
+        }
+    }
+}
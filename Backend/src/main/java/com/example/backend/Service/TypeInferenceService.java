@@ -0,0 +1,155 @@
+package com.example.backend.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+@Service
+@Slf4j
+public class TypeInferenceService {
+
+    private static final Pattern INTEGER = Pattern.compile("-?(0|[1-9][0-9]{0,18})");
+    private static final Pattern DECIMAL = Pattern.compile("-?[0-9]+(\\.[0-9]+)?([eE][-+]?[0-9]+)?");
+    private static final Pattern DATE = Pattern.compile("[0-9]{4}-[0-9]{2}-[0-9]{2}");
+    private static final Pattern DATE_TIME = Pattern.compile("[0-9]{4}-[0-9]{2}-[0-9]{2}[ T][0-9]{2}:[0-9]{2}:[0-9]{2}(\\.[0-9]{1,9})?");
+    private static final Pattern UUID_PATTERN = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final DateTimeFormatter DATE_TIME_FORMAT = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .optionalStart().appendLiteral('T').optionalEnd()
+            .optionalStart().appendLiteral(' ').optionalEnd()
+            .append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .toFormatter();
+
+    @Value("${clickhouse.ingest.inference.sample-rows:1000}")
+    private int sampleRows = 1000;
+
+    @Value("${clickhouse.ingest.inference.low-cardinality-threshold:100}")
+    private int lowCardinalityThreshold = 100;
+
+    public int getSampleRows() {
+        return sampleRows;
+    }
+
+    public Map<String, String> inferColumnTypes(List<String> columns, RowBatch sample) {
+        Map<String, String> columnTypes = new LinkedHashMap<>();
+        for (int column = 0; column < columns.size(); column++) {
+            ColumnStats stats = new ColumnStats(lowCardinalityThreshold);
+            for (int row = 0; row < sample.size(); row++) {
+                stats.accept(sample.get(row, column));
+            }
+            columnTypes.put(columns.get(column), stats.resolveType());
+        }
+        log.info("Inferred column types from {} sampled rows: {}", sample.size(), columnTypes);
+        return columnTypes;
+    }
+
+    private static class ColumnStats {
+        private final int lowCardinalityThreshold;
+        private final Set<String> distinct = new HashSet<>();
+        private long nonEmpty;
+        private boolean hasEmpty;
+        private boolean integer = true;
+        private boolean decimal = true;
+        private boolean date = true;
+        private boolean dateTime = true;
+        private boolean dateTimeFraction;
+        private boolean uuid = true;
+
+        ColumnStats(int lowCardinalityThreshold) {
+            this.lowCardinalityThreshold = lowCardinalityThreshold;
+        }
+
+        void accept(String value) {
+            if (value == null || value.isEmpty()) {
+                hasEmpty = true;
+                return;
+            }
+            nonEmpty++;
+            if (distinct.size() <= lowCardinalityThreshold) {
+                distinct.add(value);
+            }
+            // Leading zeros (postcodes, ids) and surrounding spaces must survive, so they disqualify numbers
+            integer = integer && INTEGER.matcher(value).matches() && fitsInt64(value);
+            decimal = decimal && DECIMAL.matcher(value).matches() && !hasLeadingZero(value);
+            date = date && DATE.matcher(value).matches() && parses(value, true);
+            if (dateTime && DATE_TIME.matcher(value).matches() && parses(value, false)) {
+                dateTimeFraction = dateTimeFraction || value.indexOf('.') > 0;
+            } else {
+                dateTime = false;
+            }
+            uuid = uuid && UUID_PATTERN.matcher(value).matches() && parsesUuid(value);
+        }
+
+        String resolveType() {
+            if (nonEmpty == 0) {
+                return "Nullable(String)";
+            }
+            String type;
+            if (integer) {
+                type = "Int64";
+            } else if (decimal) {
+                type = "Float64";
+            } else if (date) {
+                // Date and DateTime start in 1970 and would clamp earlier values, such as birth dates
+                type = "Date32";
+            } else if (dateTime) {
+                type = dateTimeFraction ? "DateTime64(3)" : "DateTime64(0)";
+            } else if (uuid) {
+                type = "UUID";
+            } else if (distinct.size() <= lowCardinalityThreshold && nonEmpty >= 2L * distinct.size()) {
+                return hasEmpty ? "LowCardinality(Nullable(String))" : "LowCardinality(String)";
+            } else {
+                type = "String";
+            }
+            return hasEmpty ? "Nullable(" + type + ")" : type;
+        }
+
+        private static boolean fitsInt64(String value) {
+            try {
+                Long.parseLong(value);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private static boolean hasLeadingZero(String value) {
+            String digits = value.startsWith("-") ? value.substring(1) : value;
+            return digits.length() > 1 && digits.charAt(0) == '0' && digits.charAt(1) != '.';
+        }
+
+        private static boolean parses(String value, boolean dateOnly) {
+            try {
+                if (dateOnly) {
+                    LocalDate.parse(value);
+                } else {
+                    LocalDateTime.parse(value, DATE_TIME_FORMAT);
+                }
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private static boolean parsesUuid(String value) {
+            try {
+                UUID.fromString(value);
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+    }
+}
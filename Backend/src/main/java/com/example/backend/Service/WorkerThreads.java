@@ -0,0 +1,31 @@
+package com.example.backend.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+// Thread factories for our own blocking ClickHouse work, following the same switch Spring Boot uses for Tomcat.
+// On virtual threads the connection pool, not the thread count, is what bounds concurrent queries.
+@Component
+@Slf4j
+public class WorkerThreads {
+
+    private final boolean virtual;
+
+    public WorkerThreads(@Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        this.virtual = virtual;
+        log.info("Running ClickHouse I/O on {} threads", virtual ? "virtual" : "platform");
+    }
+
+    public ThreadFactory factory(String namePrefix) {
+        return virtual
+                ? Thread.ofVirtual().name(namePrefix, 0).factory()
+                : Thread.ofPlatform().name(namePrefix, 0).factory();
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.backend.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveBatchControllerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long WITHIN_TARGET = TimeUnit.MILLISECONDS.toNanos(80);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(300);
+    private static final long NO_BUDGET = 1L << 40;
+
+    private final TransferMetrics.IngestControlGauges gauges =
+            new TransferMetrics.IngestControlGauges(new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong());
+    private final AtomicLong parts = new AtomicLong(-1);
+
+    private AdaptiveBatchController controller(boolean fixedSize, long memoryBudgetBytes, long partsCheckIntervalMillis) {
+        AdaptiveBatchController.Limits limits = new AdaptiveBatchController.Limits(100, 10_000, 100, memoryBudgetBytes, partsCheckIntervalMillis);
+        return new AdaptiveBatchController(limits, fixedSize, parts::get, 75, gauges);
+    }
+
+    private AdaptiveBatchController started(int workers, int requestedRows) {
+        AdaptiveBatchController controller = controller(false, NO_BUDGET, TimeUnit.HOURS.toMillis(1));
+        controller.start(workers, workers * 3 + 1, requestedRows);
+        return controller;
+    }
+
+    private static void batches(AdaptiveBatchController controller, int count, int rows, long nanos) {
+        for (int i = 0; i < count; i++) {
+            controller.onBatch(rows, rows * 100L, nanos);
+        }
+    }
+
+    @Test
+    void startClampsTheRequestedSize() {
+        assertEquals(100, started(4, 50).batchRows());
+        assertEquals(10_000, started(4, 50_000).batchRows());
+        assertEquals(2000, started(4, 2000).batchRows());
+        assertEquals(2000, gauges.batchRows().get());
+        assertEquals(4, gauges.concurrency().get());
+    }
+
+    @Test
+    void checkpointedRunsKeepTheRequestedSize() {
+        AdaptiveBatchController controller = controller(true, NO_BUDGET, TimeUnit.HOURS.toMillis(1));
+        controller.start(2, 7, 50);
+        batches(controller, 4, 50, FAST);
+        controller.onFailure(new SQLException("Too many parts", "HY000", 252));
+
+        assertEquals(50, controller.batchRows());
+        assertEquals(1, gauges.concurrency().get());
+    }
+
+    @Test
+    void fastInsertsDoubleTheSizeOnceEveryWorkerHasReported() {
+        AdaptiveBatchController controller = started(2, 1000);
+
+        batches(controller, 1, 1000, FAST);
+        assertEquals(1000, controller.batchRows());
+        batches(controller, 1, 1000, FAST);
+        assertEquals(2000, controller.batchRows());
+        batches(controller, 2, 2000, FAST);
+        assertEquals(4000, controller.batchRows());
+        assertEquals(2, gauges.concurrency().get());
+    }
+
+    @Test
+    void fastButPartialBatchesDoNotGrowTheSize() {
+        AdaptiveBatchController controller = started(1, 1000);
+
+        batches(controller, 3, 400, FAST);
+
+        assertEquals(1000, controller.batchRows());
+    }
+
+    @Test
+    void slowInsertsHalveTheSizeAndThenTheConcurrency() {
+        AdaptiveBatchController controller = started(2, 400);
+
+        batches(controller, 2, 400, SLOW);
+        assertEquals(200, controller.batchRows());
+        batches(controller, 2, 200, SLOW);
+        assertEquals(100, controller.batchRows());
+        batches(controller, 2, 100, SLOW);
+        assertEquals(100, controller.batchRows());
+        assertEquals(1, gauges.concurrency().get());
+        batches(controller, 1, 100, SLOW);
+        assertEquals(1, gauges.concurrency().get());
+    }
+
+    @Test
+    void failuresHalveTheConcurrencyAndHealthyInsertsWinItBack() {
+        AdaptiveBatchController controller = started(4, 1000);
+
+        controller.onFailure(new SQLException("Connection reset"));
+        assertEquals(2, gauges.concurrency().get());
+        assertEquals(1000, controller.batchRows());
+
+        batches(controller, 2, 1000, WITHIN_TARGET);
+        assertEquals(3, gauges.concurrency().get());
+        batches(controller, 3, 1000, WITHIN_TARGET);
+        assertEquals(4, gauges.concurrency().get());
+        batches(controller, 4, 1000, WITHIN_TARGET);
+        assertEquals(4, gauges.concurrency().get());
+    }
+
+    @Test
+    void tooManyPartsGrowsTheSize() {
+        AdaptiveBatchController controller = started(4, 1000);
+
+        controller.onFailure(new RuntimeException("Insert failed", new SQLException("Too many parts", "HY000", 252)));
+
+        assertEquals(2000, controller.batchRows());
+        assertEquals(2, gauges.concurrency().get());
+    }
+
+    @Test
+    void theMemoryBudgetCapsTheSize() {
+        // 100 bytes per row and 10 batches in memory: 1 MB holds 1048 rows per batch
+        AdaptiveBatchController controller = controller(false, 1 << 20, TimeUnit.HOURS.toMillis(1));
+        controller.start(3, 10, 5000);
+
+        batches(controller, 1, 5000, FAST);
+        assertEquals(1048, controller.batchRows());
+        assertEquals(100, gauges.rowBytes().get());
+
+        batches(controller, 6, 1048, FAST);
+        assertEquals(1048, controller.batchRows());
+    }
+
+    @Test
+    void smallDriftsOverTheBudgetAreIgnored() {
+        AdaptiveBatchController controller = controller(false, 1 << 20, TimeUnit.HOURS.toMillis(1));
+        controller.start(1, 10, 1100);
+
+        controller.onBatch(1100, 1100 * 100L, WITHIN_TARGET);
+
+        assertEquals(1100, controller.batchRows());
+    }
+
+    @Test
+    void partPressureHalvesConcurrencyAndHoldsItDown() {
+        AdaptiveBatchController controller = controller(false, NO_BUDGET, 0);
+        controller.start(4, 13, 1000);
+
+        parts.set(200);
+        assertEquals(2000, controller.batchRows());
+        assertEquals(2, gauges.concurrency().get());
+        assertEquals(200, gauges.parts().get());
+
+        batches(controller, 2, 2000, WITHIN_TARGET);
+        assertEquals(2, gauges.concurrency().get());
+        batches(controller, 2, 2000, FAST);
+        assertEquals(2, gauges.concurrency().get());
+
+        parts.set(10);
+        controller.batchRows();
+        batches(controller, 2, 4000, WITHIN_TARGET);
+        assertEquals(3, gauges.concurrency().get());
+    }
+
+    @Test
+    void unreadablePartCountsChangeNothing() {
+        AdaptiveBatchController controller = controller(false, NO_BUDGET, 0);
+        controller.start(4, 13, 1000);
+
+        assertEquals(1000, controller.batchRows());
+        assertEquals(4, gauges.concurrency().get());
+    }
+
+    @Test
+    void slotsFollowTheConcurrency() throws InterruptedException {
+        AdaptiveBatchController controller = started(2, 1000);
+
+        assertTrue(controller.tryAcquireSlot());
+        assertTrue(controller.tryAcquireSlot());
+        assertFalse(controller.tryAcquireSlot());
+        controller.releaseSlot();
+        controller.onFailure(new SQLException("Connection reset"));
+        assertFalse(controller.tryAcquireSlot());
+        controller.releaseSlot();
+        assertTrue(controller.tryAcquireSlot());
+
+        // A stopping run is let through so its workers can exit
+        controller.acquireSlot(() -> true);
+    }
+
+    @Test
+    void theFixedControllerNeverChanges() {
+        AdaptiveBatchController controller = AdaptiveBatchController.fixed();
+        controller.start(4, 13, 50);
+
+        controller.onBatch(50, 5000, SLOW);
+        controller.onFailure(new SQLException("Too many parts", "HY000", 252));
+
+        assertFalse(controller.isAdaptive());
+        assertEquals(50, controller.batchRows());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(controller.tryAcquireSlot());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.backend.Service;
+
+import com.example.backend.Model.ColumnTransform;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnTransformerTest {
+
+    private static ColumnTransform transform(String column) {
+        ColumnTransform transform = new ColumnTransform();
+        transform.setColumn(column);
+        return transform;
+    }
+
+    private static String[] apply(ColumnTransformer transformer, String... row) {
+        String[] cells = row.clone();
+        transformer.apply(cells, 0);
+        return cells;
+    }
+
+    @Test
+    void columnsWithoutTransformsPassThrough() {
+        ColumnTransformer transformer = ColumnTransformer.compile(List.of("id", "name"), null);
+
+        assertEquals(List.of("1", " Ada "), Arrays.asList(apply(transformer, "1", " Ada ")));
+        assertEquals(List.of("id", "name"), transformer.getTargetColumns());
+    }
+
+    @Test
+    void dobKeepsItsIsoRewriteUnlessConfigured() {
+        ColumnTransformer implicit = ColumnTransformer.compile(List.of("id", "DOB"), List.of());
+        assertEquals("1950-03-14 08:30:00", apply(implicit, "1", "1950-03-14T08:30:00")[1]);
+
+        ColumnTransform date = transform("DOB");
+        date.setDateFormat("dd/MM/yyyy");
+        ColumnTransformer configured = ColumnTransformer.compile(List.of("id", "DOB"), List.of(date));
+        assertEquals("1950-03-14", apply(configured, "1", "14/03/1950")[1]);
+    }
+
+    @Test
+    void stepsRunInOrderAndStopAtANullToken() {
+        ColumnTransform amount = transform("amount");
+        amount.setTrim(true);
+        amount.setNullTokens(List.of("N/A"));
+        amount.setNumeric(true);
+        ColumnTransformer transformer = ColumnTransformer.compile(List.of("amount"), List.of(amount));
+
+        assertNull(apply(transformer, "  N/A ")[0]);
+        assertEquals("1234.50", apply(transformer, " 1,234.50 ")[0]);
+        assertEquals(0, transformer.getFailures());
+    }
+
+    @Test
+    void numbersAreReadWithTheConfiguredSeparators() {
+        ColumnTransform european = transform("price");
+        european.setNumeric(true);
+        european.setDecimalSeparator(",");
+        ColumnTransformer transformer = ColumnTransformer.compile(List.of("price"), List.of(european));
+
+        assertEquals("1234567.89", apply(transformer, "1.234.567,89")[0]);
+        assertEquals("-1500", apply(transformer, "-1 500")[0]);
+        assertEquals("0.5", apply(transformer, "0,5")[0]);
+    }
+
+    @Test
+    void aCommaThatIsNotAThousandsSeparatorFailsInsteadOfJoiningDigits() {
+        ColumnTransform price = transform("price");
+        price.setNumeric(true);
+        ColumnTransformer transformer = ColumnTransformer.compile(List.of("price"), List.of(price));
+
+        assertEquals("1,5", apply(transformer, "1,5")[0]);
+        assertEquals("12,34,567", apply(transformer, "12,34,567")[0]);
+        assertEquals(2, transformer.getFailures());
+    }
+
+    @Test
+    void failedCellsKeepTheirValueAndAreSampled() {
+        ColumnTransform created = transform("created");
+        created.setDateTimeFormat("yyyy-MM-dd HH:mm");
+        ColumnTransformer transformer = ColumnTransformer.compile(List.of("created"), List.of(created));
+
+        assertEquals("2024-01-02 03:04:00", apply(transformer, "2024-01-02 03:04")[0]);
+        assertEquals("yesterday", apply(transformer, "yesterday")[0]);
+        assertEquals("", apply(transformer, "")[0]);
+        assertEquals(1, transformer.getFailures());
+        assertTrue(transformer.getFailureSamples().get(0).startsWith("created='yesterday'"));
+    }
+
+    @Test
+    void renamesChangeTheTargetColumns() {
+        ColumnTransform rename = transform("Full Name");
+        rename.setRename(" full_name ");
+        ColumnTransformer transformer = ColumnTransformer.compile(List.of("id", "Full Name"), List.of(rename));
+
+        assertEquals(List.of("id", "full_name"), transformer.getTargetColumns());
+    }
+
+    @Test
+    void invalidTransformsAreRejectedBeforeAnyRowIsRead() {
+        List<String> columns = List.of("id", "name");
+
+        assertThrows(IllegalArgumentException.class, () -> ColumnTransformer.compile(columns, List.of(transform("missing"))));
+        assertThrows(IllegalArgumentException.class, () -> ColumnTransformer.compile(columns, List.of(transform("id"), transform("id"))));
+
+        ColumnTransform duplicate = transform("name");
+        duplicate.setRename("id");
+        assertThrows(IllegalArgumentException.class, () -> ColumnTransformer.compile(columns, List.of(duplicate)));
+
+        ColumnTransform bothDates = transform("name");
+        bothDates.setDateFormat("ISO");
+        bothDates.setDateTimeFormat("ISO");
+        assertThrows(IllegalArgumentException.class, () -> ColumnTransformer.compile(columns, List.of(bothDates)));
+
+        ColumnTransform sameSeparators = transform("name");
+        sameSeparators.setNumeric(true);
+        sameSeparators.setDecimalSeparator(".");
+        sameSeparators.setGroupingSeparator(".");
+        assertThrows(IllegalArgumentException.class, () -> ColumnTransformer.compile(columns, List.of(sameSeparators)));
+
+        ColumnTransform digitSeparator = transform("name");
+        digitSeparator.setNumeric(true);
+        digitSeparator.setDecimalSeparator("0");
+        assertThrows(IllegalArgumentException.class, () -> ColumnTransformer.compile(columns, List.of(digitSeparator)));
+    }
+}
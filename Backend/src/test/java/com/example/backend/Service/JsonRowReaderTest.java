@@ -0,0 +1,102 @@
+package com.example.backend.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonRowReaderTest {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static class TrackedInput extends ByteArrayInputStream {
+        private boolean closed;
+
+        TrackedInput(String body) {
+            super(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+
+    private static List<List<String>> readAll(JsonRowReader reader) {
+        List<List<String>> rows = new ArrayList<>();
+        String[] cells = new String[reader.getColumns().size()];
+        while (reader.next(cells, 0)) {
+            rows.add(Arrays.asList(cells.clone()));
+        }
+        return rows;
+    }
+
+    private static List<List<String>> readAll(String body) throws IOException {
+        try (JsonRowReader reader = JsonRowReader.open(JSON, new TrackedInput(body))) {
+            return readAll(reader);
+        }
+    }
+
+    @Test
+    void arrayAndNdjsonBodiesGiveTheSameRows() throws IOException {
+        List<List<String>> expected = List.of(List.of("1", "a"), List.of("2", "b"));
+
+        assertEquals(expected, readAll("[{\"id\": 1, \"name\": \"a\"}, {\"id\": 2, \"name\": \"b\"}]"));
+        assertEquals(expected, readAll("{\"id\": 1, \"name\": \"a\"}\n{\"id\": 2, \"name\": \"b\"}\n"));
+    }
+
+    @Test
+    void theFirstObjectFixesTheColumns() throws IOException {
+        try (JsonRowReader reader = JsonRowReader.open(JSON, new TrackedInput(
+                "{\"id\": 1, \"name\": \"a\"}\n{\"name\": \"b\", \"extra\": {\"x\": [1, 2]}}\n{\"id\": 3, \"more\": 4}"))) {
+            assertEquals(List.of("id", "name"), reader.getColumns());
+            assertEquals(List.of(List.of("1", "a"), Arrays.asList(null, "b"), Arrays.asList("3", null)), readAll(reader));
+        }
+    }
+
+    @Test
+    void scalarsArriveAsTextAndNestedValuesAsJson() throws IOException {
+        assertEquals(List.of(Arrays.asList("1.5", "true", null, "{\"a\":[1,{\"b\":null}]}", "[\"x\",2]")),
+                readAll("[{\"n\": 1.5, \"flag\": true, \"none\": null, \"object\": {\"a\": [1, {\"b\": null}]}, \"list\": [\"x\", 2]}]"));
+    }
+
+    @Test
+    void emptyBodiesHaveNoRows() throws IOException {
+        for (String body : List.of("", "[]", "  \n")) {
+            try (JsonRowReader reader = JsonRowReader.open(JSON, new TrackedInput(body))) {
+                assertFalse(reader.hasRows(), body);
+            }
+        }
+    }
+
+    @Test
+    void aMalformedRowAfterTheFirstIsRejected() throws IOException {
+        for (String body : List.of("{\"id\": 1}\n{\"id\": }", "[{\"id\": 1}, 2]", "{\"id\": 1}\n[{\"id\": 2}]")) {
+            try (JsonRowReader reader = JsonRowReader.open(JSON, new TrackedInput(body))) {
+                String[] cells = new String[1];
+                assertTrue(reader.next(cells, 0));
+                assertThrows(IllegalArgumentException.class, () -> reader.next(cells, 0), body);
+            }
+        }
+    }
+
+    @Test
+    void aMalformedFirstRowClosesTheBody() {
+        for (String body : List.of("[1, 2]", "{\"id\": ", "\"text\"")) {
+            TrackedInput input = new TrackedInput(body);
+            assertThrows(Exception.class, () -> JsonRowReader.open(JSON, input), body);
+            assertTrue(input.closed, body);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.backend.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LineCountingOutputStreamTest {
+
+    private final AtomicLong reported = new AtomicLong();
+    private final ProgressListener progress = new ProgressListener() {
+        @Override
+        public void onRows(long rows) {
+            reported.addAndGet(rows);
+        }
+    };
+
+    @Test
+    void rowsAreCountedAcrossWritesAndTheBytesPassUnchanged() throws IOException {
+        String body = "{\"id\":1,\"text\":\"a\\nb\"}\n{\"id\":2}\n{\"id\":3}\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LineCountingOutputStream counter = new LineCountingOutputStream(out, false, progress);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        counter.write(bytes, 0, 10);
+        counter.write(bytes[10]);
+        counter.write(bytes, 11, bytes.length - 11);
+
+        assertEquals(body, out.toString(StandardCharsets.UTF_8));
+        assertEquals(3, counter.getRows());
+        assertEquals(3, reported.get());
+    }
+
+    @Test
+    void theHeaderLineIsNotARow() throws IOException {
+        LineCountingOutputStream counter = new LineCountingOutputStream(new ByteArrayOutputStream(), true, progress);
+        counter.write("id\tname\n1\ta\n".getBytes(StandardCharsets.UTF_8));
+        counter.write("2\tb\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, counter.getRows());
+        assertEquals(2, reported.get());
+    }
+
+    @Test
+    void aHeaderWithoutRowsCountsNothing() throws IOException {
+        LineCountingOutputStream counter = new LineCountingOutputStream(new ByteArrayOutputStream(), true, progress);
+        counter.write("id\tname\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(0, counter.getRows());
+        assertEquals(0, reported.get());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.backend.Service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedCsvReaderTest {
+
+    private static ForkJoinPool pool;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdownNow();
+    }
+
+    // The header first, then every row
+    private List<List<String>> read(String content, char delimiter, int chunkBytes) throws IOException {
+        Path file = directory.resolve("input.csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        try (MappedCsvReader reader = new MappedCsvReader(file, delimiter, chunkBytes, pool, 4)) {
+            List<List<String>> records = new ArrayList<>();
+            records.add(reader.getHeader());
+            int width = reader.getHeader().size();
+            RowReader rows = reader.rows(ProgressListener.NONE);
+            String[] cells = new String[width];
+            while (rows.next(cells, 0)) {
+                records.add(Arrays.asList(cells.clone()));
+            }
+            return records;
+        }
+    }
+
+    @SafeVarargs
+    private static List<List<String>> records(List<String>... records) {
+        return List.of(records);
+    }
+
+    @Test
+    void quotedFieldsKeepDelimiters() throws IOException {
+        assertEquals(records(List.of("a", "b"), List.of("x,y", "z"), List.of("1", ",")),
+                read("a,b\n\"x,y\",z\n1,\",\"\n", ',', 1 << 20));
+    }
+
+    @Test
+    void doubledQuotesAreUnescaped() throws IOException {
+        assertEquals(records(List.of("quote", "n"), List.of("he said \"hi\"", "2"), List.of("\"", "3")),
+                read("quote,n\n\"he said \"\"hi\"\"\",2\n\"\"\"\",3\n", ',', 1 << 20));
+    }
+
+    @Test
+    void quotedFieldsKeepLineBreaks() throws IOException {
+        assertEquals(records(List.of("text", "n"), List.of("line1\nline2", "3"), List.of("a\r\nb", "4")),
+                read("text,n\n\"line1\nline2\",3\n\"a\r\nb\",4\n", ',', 1 << 20));
+    }
+
+    @Test
+    void crlfLineEndingsAreRemoved() throws IOException {
+        assertEquals(records(List.of("a", "b"), List.of("1", "2"), List.of("3", "x"), List.of("", "")),
+                read("a,b\r\n1,2\r\n3,\"x\"\r\n,\r\n", ',', 1 << 20));
+    }
+
+    @Test
+    void blankLinesAreSkippedAndShortRowsPadded() throws IOException {
+        assertEquals(records(List.of("a", "b", "c"), Arrays.asList("1", null, null), List.of("4", "5", "6")),
+                read("a,b,c\n1\n\n\r\n4,5,6,7\n", ',', 1 << 20));
+    }
+
+    @Test
+    void byteOrderMarkAndLastLineWithoutBreak() throws IOException {
+        assertEquals(records(List.of("a", "b"), List.of("1", "2")),
+                read("\uFEFFa;b\n1;2", ';', 1 << 20));
+    }
+
+    // Every cut point through a file whose quoted fields hold delimiters, quotes and line breaks; the chunks must
+    // be realigned to record boundaries wherever the raw cut lands, including inside a quoted field
+    @Test
+    void quotedFieldsStraddlingChunkBoundaries() throws IOException {
+        StringBuilder content = new StringBuilder("id,text,n\r\n");
+        List<List<String>> expected = new ArrayList<>();
+        expected.add(List.of("id", "text", "n"));
+        for (int i = 0; i < 12; i++) {
+            String text = "row " + i + ", \"quoted\"\nand\r\nbroken";
+            content.append(i).append(",\"").append(text.replace("\"", "\"\"")).append("\",").append(i * 10).append("\r\n");
+            expected.add(List.of(String.valueOf(i), text, String.valueOf(i * 10)));
+        }
+        for (int chunkBytes = 1; chunkBytes <= 64; chunkBytes++) {
+            assertEquals(expected, read(content.toString(), ',', chunkBytes), "chunk size " + chunkBytes);
+        }
+    }
+
+    @Test
+    void invalidInputIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> read("a,b\n1,2\n", '"', 1 << 20));
+        assertThrows(IllegalArgumentException.class, () -> read("", ',', 1 << 20));
+        assertThrows(IllegalArgumentException.class, () -> read("a,b\n\"x\"y,2\n", ',', 1 << 20));
+        assertThrows(IllegalArgumentException.class, () -> read("a,b\n\"unterminated,2\n", ',', 1 << 20));
+    }
+}
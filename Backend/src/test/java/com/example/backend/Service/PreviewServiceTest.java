@@ -0,0 +1,166 @@
+package com.example.backend.Service;
+
+import com.example.backend.Model.FilterOperator;
+import com.example.backend.Model.PreviewFilter;
+import com.example.backend.Model.PreviewRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PreviewServiceTest {
+
+    private final PreviewService service = new PreviewService();
+
+    PreviewServiceTest() {
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("id", "UInt64");
+        columns.put("name", "String");
+        columns.put("created", "DateTime");
+        // Only the table listing and its columns are read while a query is prepared
+        ReflectionTestUtils.setField(service, "clickHouseService", new ClickHouseService() {
+            @Override
+            public List<String> getTables() {
+                return List.of("events");
+            }
+
+            @Override
+            public Map<String, String> describeTable(String tableName) {
+                return columns;
+            }
+        });
+    }
+
+    private static PreviewFilter filter(String column, FilterOperator operator, String value, List<String> values) {
+        PreviewFilter filter = new PreviewFilter();
+        filter.setColumn(column);
+        filter.setOperator(operator);
+        filter.setValue(value);
+        filter.setValues(values);
+        return filter;
+    }
+
+    @Test
+    void anEmptyRequestSelectsEveryColumnUpToTheDefaultLimit() {
+        PreviewService.PreviewQuery query = service.prepare("events", new PreviewRequest());
+
+        assertEquals("SELECT id, name, created FROM events LIMIT 100", query.sql());
+        assertEquals(List.of("id", "name", "created"), query.columns());
+        assertEquals(List.of(), query.parameters());
+    }
+
+    @Test
+    void filterValuesAreBoundAsParameters() {
+        PreviewRequest request = new PreviewRequest();
+        request.setColumns(List.of("name"));
+        request.setFilters(List.of(
+                filter("name", FilterOperator.LIKE, "x' OR 1=1 --", null),
+                filter("id", FilterOperator.IN, null, List.of("1", "2")),
+                filter("created", FilterOperator.IS_NOT_NULL, "ignored", null),
+                filter("id", null, "3", null)));
+
+        PreviewService.PreviewQuery query = service.prepare("events", request);
+
+        assertEquals("SELECT name FROM events WHERE name LIKE ? AND id IN (?, ?) AND created IS NOT NULL AND id = ? LIMIT 100",
+                query.sql());
+        assertEquals(List.of("x' OR 1=1 --", "1", "2", "3"), query.parameters());
+    }
+
+    @Test
+    void keysetPagingContinuesAfterTheLastRowInOrder() {
+        PreviewRequest request = new PreviewRequest();
+        request.setColumns(List.of("name"));
+        request.setFilters(List.of(filter("name", FilterOperator.NE, "", null)));
+        request.setOrderBy(List.of("created", "id"));
+        request.setDescending(true);
+        request.setAfter(List.of("2024-01-01 00:00:00", "42"));
+        request.setLimit(50);
+
+        PreviewService.PreviewQuery query = service.prepare("events", request);
+
+        assertEquals("SELECT name, created, id FROM events WHERE name != ? AND (created, id) < (?, ?)"
+                + " ORDER BY created DESC, id DESC LIMIT 50", query.sql());
+        assertEquals(List.of("", "2024-01-01 00:00:00", "42"), query.parameters());
+        assertEquals(List.of("created", "id"), query.orderBy());
+    }
+
+    @Test
+    void ascendingPagesCompareUpwardsAndOffsetsFollowTheLimit() {
+        PreviewRequest keyset = new PreviewRequest();
+        keyset.setOrderBy(List.of("id"));
+        keyset.setAfter(List.of("10"));
+        assertEquals("SELECT id, name, created FROM events WHERE (id) > (?) ORDER BY id LIMIT 100",
+                service.prepare("events", keyset).sql());
+
+        PreviewRequest offset = new PreviewRequest();
+        offset.setLimit(1_000_000);
+        offset.setOffset(20L);
+        assertEquals("SELECT id, name, created FROM events LIMIT 10000 OFFSET 20", service.prepare("events", offset).sql());
+    }
+
+    @Test
+    void identifiersOutsideTheTableAreRejected() {
+        PreviewRequest column = new PreviewRequest();
+        column.setColumns(List.of("id; DROP TABLE events"));
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("events", column));
+
+        PreviewRequest order = new PreviewRequest();
+        order.setOrderBy(List.of("rand()"));
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("events", order));
+
+        PreviewRequest filter = new PreviewRequest();
+        filter.setFilters(List.of(filter("missing", FilterOperator.EQ, "1", null)));
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("events", filter));
+
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("other", new PreviewRequest()));
+    }
+
+    @Test
+    void inconsistentPagingIsRejected() {
+        PreviewRequest withoutOrder = new PreviewRequest();
+        withoutOrder.setAfter(List.of("1"));
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("events", withoutOrder));
+
+        PreviewRequest wrongWidth = new PreviewRequest();
+        wrongWidth.setOrderBy(List.of("created", "id"));
+        wrongWidth.setAfter(List.of("1"));
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("events", wrongWidth));
+
+        PreviewRequest both = new PreviewRequest();
+        both.setOrderBy(List.of("id"));
+        both.setAfter(List.of("1"));
+        both.setOffset(10L);
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("events", both));
+    }
+
+    @Test
+    void filtersMissingTheirValuesAreRejected() {
+        PreviewRequest noValue = new PreviewRequest();
+        noValue.setFilters(List.of(filter("id", FilterOperator.GT, null, null)));
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("events", noValue));
+
+        PreviewRequest noValues = new PreviewRequest();
+        noValues.setFilters(List.of(filter("id", FilterOperator.NOT_IN, null, List.of())));
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("events", noValues));
+    }
+
+    @Test
+    void limitsOffsetsAndSamplesAreRangeChecked() {
+        PreviewRequest limit = new PreviewRequest();
+        limit.setLimit(0);
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("events", limit));
+
+        PreviewRequest offset = new PreviewRequest();
+        offset.setOffset(-1L);
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("events", offset));
+
+        PreviewRequest sample = new PreviewRequest();
+        sample.setSample(1.5);
+        assertThrows(IllegalArgumentException.class, () -> service.prepare("events", sample));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.backend.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RowBinaryEncoderTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private static byte[] encode(String type, String value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RowBinaryEncoder.forType(type, UTC).encode(out, value);
+        return out.toByteArray();
+    }
+
+    // RowBinary numbers are little-endian
+    private static byte[] int64(long value) {
+        return ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array();
+    }
+
+    private static byte[] int32(int value) {
+        return ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    void nullableWritesAMarkerBeforeTheValue() throws IOException {
+        assertArrayEquals(new byte[]{1}, encode("Nullable(Int64)", ""));
+        assertArrayEquals(new byte[]{1}, encode("Nullable(Int64)", null));
+        assertArrayEquals(concat(new byte[]{0}, int64(-42)), encode("Nullable(Int64)", "-42"));
+    }
+
+    @Test
+    void lowCardinalityIsWrittenAsItsInnerType() throws IOException {
+        assertArrayEquals(new byte[]{2, 'a', 'b'}, encode("LowCardinality(String)", "ab"));
+        assertArrayEquals(new byte[]{1}, encode("LowCardinality(Nullable(String))", ""));
+        assertArrayEquals(new byte[]{0, 1, 'x'}, encode("LowCardinality(Nullable(String))", "x"));
+    }
+
+    @Test
+    void dateTime64IsScaledTicksSinceTheEpoch() throws IOException {
+        assertArrayEquals(int64(1_500), encode("DateTime64(3)", "1970-01-01 00:00:01.5"));
+        assertArrayEquals(int64(1_704_067_200L), encode("DateTime64(0)", "2024-01-01T00:00:00"));
+        assertArrayEquals(int64(-1_000), encode("DateTime64(3)", "1969-12-31 23:59:59"));
+    }
+
+    @Test
+    void dateTime64UsesItsOwnTimeZoneOverTheServers() throws IOException {
+        assertArrayEquals(int64(-3_600_000), encode("DateTime64(3, 'Europe/Berlin')", "1970-01-01 00:00:00"));
+        assertArrayEquals(concat(new byte[]{0}, int64(0)), encode("Nullable(DateTime64(0, 'UTC'))", "1970-01-01"));
+    }
+
+    @Test
+    void date32ReachesBefore1970() throws IOException {
+        assertArrayEquals(int32(-7_233), encode("Date32", "1950-03-14"));
+        assertArrayEquals(int32(0), encode("Date32", ""));
+    }
+
+    @Test
+    void writeRowEncodesEachColumnWithItsOwnType() throws IOException {
+        RowBinaryEncoder encoder = new RowBinaryEncoder(List.of("Int64", " Nullable(String) "), UTC);
+        RowBatch batch = new RowBatch(2, 1);
+        batch.fill((cells, offset) -> {
+            cells[offset] = "7";
+            cells[offset + 1] = "";
+            return true;
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        encoder.writeRow(out, batch, 0);
+
+        assertArrayEquals(concat(int64(7), new byte[]{1}), out.toByteArray());
+    }
+
+    @Test
+    void unsupportedTypesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RowBinaryEncoder.forType("Array(String)", UTC));
+        assertThrows(IllegalArgumentException.class, () -> RowBinaryEncoder.forType("Nullable(Map(String, String))", UTC));
+    }
+}
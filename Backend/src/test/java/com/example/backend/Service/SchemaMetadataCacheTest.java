@@ -0,0 +1,109 @@
+package com.example.backend.Service;
+
+import com.example.backend.Model.ClickHouseConnection;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SchemaMetadataCacheTest {
+
+    private final SchemaMetadataCache cache = new SchemaMetadataCache();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private static ClickHouseConnection target(String database) {
+        ClickHouseConnection settings = new ClickHouseConnection();
+        settings.setHost("localhost");
+        settings.setPort(8123);
+        settings.setDatabase(database);
+        settings.setUsername("default");
+        return settings;
+    }
+
+    private Map<String, String> columns(ClickHouseConnection settings, String table, Runnable duringLoad) {
+        return cache.getColumns(settings, table, () -> {
+            loads.incrementAndGet();
+            duringLoad.run();
+            return Map.of("id", "UInt64");
+        });
+    }
+
+    @Test
+    void repeatedLookupsAreServedFromTheCache() {
+        ClickHouseConnection settings = target("db");
+
+        columns(settings, "events", () -> { });
+        columns(settings, "events", () -> { });
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getStats().getHits());
+    }
+
+    @Test
+    void aLoadRacingAnInvalidationOfItsTableIsNotKept() {
+        ClickHouseConnection settings = target("db");
+
+        columns(settings, "events", () -> cache.invalidateTable(settings, "events"));
+        columns(settings, "events", () -> { });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidatingAnotherTableKeepsTheLoadInFlight() {
+        ClickHouseConnection settings = target("db");
+
+        columns(settings, "events", () -> cache.invalidateTable(settings, "users"));
+        columns(settings, "events", () -> { });
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidatingAnotherTargetKeepsTheLoadInFlight() {
+        ClickHouseConnection settings = target("db");
+
+        columns(settings, "events", () -> cache.invalidateTarget(target("other")));
+        columns(settings, "events", () -> { });
+        columns(settings, "users", () -> cache.invalidateTarget(settings));
+        columns(settings, "users", () -> { });
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void aLoadOverlappingANewerOneOfTheSameKeyIsNotKept() {
+        ClickHouseConnection settings = target("db");
+        AtomicInteger tableLoads = new AtomicInteger();
+
+        List<String> outer = cache.getTables(settings, () -> {
+            tableLoads.incrementAndGet();
+            cache.getTables(settings, () -> {
+                tableLoads.incrementAndGet();
+                return List.of("newer");
+            });
+            return List.of("older");
+        });
+
+        assertEquals(List.of("older"), outer);
+        assertEquals(List.of("newer"), cache.getTables(settings, () -> List.of("reloaded")));
+        assertEquals(2, tableLoads.get());
+    }
+
+    @Test
+    void aFailedLoadLeavesNothingBehind() {
+        ClickHouseConnection settings = target("db");
+
+        assertThrows(IllegalStateException.class, () -> columns(settings, "events", () -> {
+            throw new IllegalStateException("server unavailable");
+        }));
+        columns(settings, "events", () -> { });
+        columns(settings, "events", () -> { });
+
+        assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.backend.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TypeInferenceServiceTest {
+
+    private final TypeInferenceService service = new TypeInferenceService();
+
+    // Each entry is one column; row i holds the i-th value of every column
+    private Map<String, String> infer(Map<String, List<String>> columns) {
+        List<String> names = new ArrayList<>(columns.keySet());
+        int rows = columns.values().iterator().next().size();
+        RowBatch batch = new RowBatch(names.size(), rows);
+        int[] next = {0};
+        batch.fill((cells, offset) -> {
+            if (next[0] == rows) {
+                return false;
+            }
+            for (int column = 0; column < names.size(); column++) {
+                cells[offset + column] = columns.get(names.get(column)).get(next[0]);
+            }
+            next[0]++;
+            return true;
+        });
+        return service.inferColumnTypes(names, batch);
+    }
+
+    private String infer(String... values) {
+        return infer(Map.of("value", Arrays.asList(values))).get("value");
+    }
+
+    @Test
+    void plainIntegersAreInt64() {
+        assertEquals("Int64", infer("0", "42", "-7", "9223372036854775807"));
+    }
+
+    @Test
+    void leadingZerosKeepTheColumnAString() {
+        assertEquals("String", infer("00123", "00456", "00789"));
+        assertEquals("String", infer("1", "2", "007.5"));
+    }
+
+    @Test
+    void integersOutsideInt64FallBackToFloat64() {
+        assertEquals("Float64", infer("1", "9223372036854775808"));
+        assertEquals("Float64", infer("-9223372036854775809", "2"));
+    }
+
+    @Test
+    void decimalsAndExponentsAreFloat64() {
+        assertEquals("Float64", infer("0.5", "-1.25", "3e10"));
+    }
+
+    @Test
+    void datesBefore1970AreDate32() {
+        assertEquals("Date32", infer("1950-03-14", "1969-12-31", "2001-01-01"));
+    }
+
+    @Test
+    void invalidCalendarDatesAreStrings() {
+        assertEquals("String", infer("2024-02-30", "2024-13-01", "2024-01-01"));
+    }
+
+    @Test
+    void dateTimesKeepTheirFraction() {
+        assertEquals("DateTime64(0)", infer("1960-05-01 08:00:00", "2024-01-01T12:30:00"));
+        assertEquals("DateTime64(3)", infer("2024-01-01 12:30:00", "2024-01-01 12:30:00.125"));
+    }
+
+    @Test
+    void uuidsAreRecognised() {
+        assertEquals("UUID", infer("123e4567-e89b-12d3-a456-426614174000", "00000000-0000-0000-0000-000000000000"));
+    }
+
+    @Test
+    void emptiesMakeTheTypeNullable() {
+        assertEquals("Nullable(Int64)", infer("1", "", "3"));
+        assertEquals("Nullable(Date32)", infer("1950-01-01", null));
+        assertEquals("Nullable(String)", infer("", null, ""));
+    }
+
+    @Test
+    void repeatedStringsAreLowCardinality() {
+        assertEquals("LowCardinality(String)", infer("red", "blue", "red", "blue"));
+        assertEquals("LowCardinality(Nullable(String))", infer("red", "", "red", "red"));
+        assertEquals("String", infer("red", "blue", "green"));
+    }
+
+    @Test
+    void columnsAreInferredIndependently() {
+        Map<String, String> types = infer(Map.of(
+                "id", List.of("1", "2"),
+                "zip", List.of("01234", "")));
+
+        assertEquals("Int64", types.get("id"));
+        assertEquals("Nullable(String)", types.get("zip"));
+    }
+}
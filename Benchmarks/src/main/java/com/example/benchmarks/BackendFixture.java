@@ -0,0 +1,70 @@
+package com.example.benchmarks;
+
+import com.example.backend.Model.ClickHouseConnection;
+import com.example.backend.Model.InsertMode;
+import com.example.backend.Service.ClickHouseConnectionPool;
+import com.example.backend.Service.ClickHouseService;
+import com.example.backend.Service.FlatFileService;
+import com.example.backend.Service.SchemaMetadataCache;
+import com.example.backend.Service.TransferMetrics;
+import com.example.backend.Service.TypeInferenceService;
+import com.example.backend.Service.WorkerThreads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+
+// The backend services wired by hand, without a Spring context, on top of the stub JDBC layer
+final class BackendFixture {
+
+    final ClickHouseService clickHouseService = new ClickHouseService();
+    final FlatFileService flatFileService = new FlatFileService();
+
+    BackendFixture(SyntheticData data, int ingestWorkers) {
+        ClickHouseConnection settings = new ClickHouseConnection();
+        settings.setHost("stub");
+        settings.setPort(8123);
+        settings.setDatabase("default");
+        settings.setUsername("default");
+
+        // A live registry, so the measured loops pay the same metrics cost as the server
+        TransferMetrics metrics = new TransferMetrics(new SimpleMeterRegistry());
+
+        SchemaMetadataCache metadataCache = new SchemaMetadataCache();
+        ReflectionTestUtils.setField(metadataCache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(metadataCache, "maxEntries", 1000);
+
+        clickHouseService.setClickHouseConnection(settings);
+        clickHouseService.setConnectionPool(new StubConnectionPool(data));
+        clickHouseService.setMetadataCache(metadataCache);
+        clickHouseService.setTypeInferenceService(new TypeInferenceService());
+        clickHouseService.setWorkerThreads(new WorkerThreads(false));
+        clickHouseService.setDefaultInsertMode(InsertMode.JDBC_BATCH);
+        clickHouseService.setIngestWorkers(ingestWorkers);
+        clickHouseService.setIngestQueueCapacity(ingestWorkers * 2);
+        clickHouseService.setMetrics(metrics);
+
+        ReflectionTestUtils.setField(flatFileService, "clickHouseService", clickHouseService);
+        ReflectionTestUtils.setField(flatFileService, "previewRows", 10);
+        ReflectionTestUtils.setField(flatFileService, "metrics", metrics);
+    }
+
+    private static class StubConnectionPool extends ClickHouseConnectionPool {
+        private final SyntheticData data;
+
+        StubConnectionPool(SyntheticData data) {
+            this.data = data;
+        }
+
+        // Stub connections cost nothing, so the worker count under test is never capped
+        @Override
+        public int getMaxSize() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public Connection getConnection(ClickHouseConnection settings) {
+            return StubJdbc.connection(data);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// JMH entry point that writes JSON results unless told otherwise, so runs can be diffed across commits
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(List.of(args));
+        if (!options.contains("-rf")) {
+            options.add("-rf");
+            options.add("json");
+        }
+        if (!options.contains("-rff")) {
+            options.add("-rff");
+            options.add("jmh-result.json");
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Closed-loop HTTP load: N clients hammer one endpoint for a fixed time, and the sustained request rate and latency
+// percentiles are reported per concurrency level. Not a JMH benchmark, since it measures a server, not a method.
+//
+// Without --url the backend is started in this JVM once per mode, on StubBackend's ClickHouse stubs:
+//   java -cp Benchmarks/target/benchmarks.jar com.example.benchmarks.EndpointLoadBenchmark \
+//       --modes platform,virtual --round-trip-ms 5 --pool-size 10 --concurrency 16,64,256,1024 --seconds 10
+//
+// With --url it drives a running backend instead; start it once per mode, lift the per-session rate limit the
+// clients share, and label the runs:
+//   SPRING_THREADS_VIRTUAL_ENABLED=true java -jar Backend/target/Backend-*-exec.jar --clickhouse.metadata.ttl-ms=0 \
+//       --clickhouse.tenant.requests-per-second=1000000 --clickhouse.tenant.burst=1000000
+//   java -cp Benchmarks/target/benchmarks.jar com.example.benchmarks.EndpointLoadBenchmark \
+//       --url http://localhost:8080 --connect localhost:8123:default:default: --table bench_events --label virtual
+public class EndpointLoadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        String table = options.getOrDefault("table", "bench_events");
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "20"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-seconds", "5"));
+        int ingestRows = Integer.parseInt(options.getOrDefault("ingest-rows", "100"));
+        int[] levels = Arrays.stream(options.getOrDefault("concurrency", "16,64,256").split(","))
+                .mapToInt(level -> Integer.parseInt(level.trim()))
+                .toArray();
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        Load load = new Load(client, table, ingestRows, levels, seconds, warmupSeconds);
+
+        System.out.printf("%-10s %-8s %11s %10s %9s %9s %9s %8s%n",
+                "label", "scenario", "concurrency", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        if (options.containsKey("url")) {
+            String baseUrl = options.get("url");
+            String token = options.containsKey("token") ? options.get("token") : connect(client, baseUrl, options.get("connect"));
+            load.measure(options.getOrDefault("label", "run"), baseUrl, token);
+            return;
+        }
+        Duration roundTrip = Duration.ofMillis(Long.parseLong(options.getOrDefault("round-trip-ms", "5")));
+        int poolSize = Integer.parseInt(options.getOrDefault("pool-size", "10"));
+        for (String mode : options.getOrDefault("modes", "platform,virtual").split(",")) {
+            try (StubBackend backend = new StubBackend(mode.trim().equals("virtual"), roundTrip, poolSize)) {
+                load.measure(mode.trim(), backend.url(), connect(client, backend.url(), "stub:8123:default:default:"));
+            }
+        }
+    }
+
+    private record Load(HttpClient client, String table, int ingestRows, int[] levels, int seconds, int warmupSeconds) {
+
+        void measure(String label, String baseUrl, String token) throws Exception {
+            String ingestBody = ingestBody(ingestRows);
+            Map<String, Supplier<HttpRequest>> scenarios = new LinkedHashMap<>();
+            scenarios.put("tables", () -> authorized(baseUrl + "/api/clickhouse/tables", token).GET().build());
+            scenarios.put("columns", () -> authorized(baseUrl + "/api/clickhouse/columns?table=" + table, token).GET().build());
+            scenarios.put("ingest", () -> authorized(baseUrl + "/api/clickhouse/ingest?table=" + table + "&batchSize=" + ingestRows, token)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(ingestBody))
+                    .build());
+
+            for (Map.Entry<String, Supplier<HttpRequest>> scenario : scenarios.entrySet()) {
+                if (warmupSeconds > 0) {
+                    run(client, scenario.getValue(), levels[levels.length - 1], warmupSeconds);
+                }
+                for (int concurrency : levels) {
+                    Result result = run(client, scenario.getValue(), concurrency, seconds);
+                    System.out.printf("%-10s %-8s %11d %10.1f %9.1f %9.1f %9.1f %8d%n",
+                            label, scenario.getKey(), concurrency, result.requestsPerSecond,
+                            result.p50Millis, result.p99Millis, result.maxMillis, result.errors);
+                }
+            }
+        }
+    }
+
+    private static Result run(HttpClient client, Supplier<HttpRequest> request, int concurrency, int seconds) throws Exception {
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<long[]>> clients = new ArrayList<>(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                clients.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request.get(), HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+
+        long[] all = clients.stream().flatMapToLong(future -> {
+            try {
+                return Arrays.stream(future.get());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).sorted().toArray();
+        if (all.length == 0) {
+            return new Result(0, 0, 0, 0, errors.get());
+        }
+        return new Result(
+                all.length / (double) seconds,
+                all[(int) (all.length * 0.50)] / 1_000_000.0,
+                all[Math.min(all.length - 1, (int) (all.length * 0.99))] / 1_000_000.0,
+                all[all.length - 1] / 1_000_000.0,
+                errors.get()
+        );
+    }
+
+    // host:port:database:username:password -> JWT from /api/clickhouse/connect
+    private static String connect(HttpClient client, String baseUrl, String connect) throws Exception {
+        if (connect == null) {
+            throw new IllegalArgumentException("Pass either --token <jwt> or --connect host:port:database:username:password");
+        }
+        String[] parts = connect.split(":", 5);
+        String body = String.format("{\"host\":\"%s\",\"port\":%s,\"database\":\"%s\",\"username\":\"%s\",\"password\":\"%s\"}",
+                parts[0], parts[1], parts[2], parts[3], parts.length > 4 ? parts[4] : "");
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/clickhouse/connect"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        String json = response.body();
+        int start = json.indexOf("\"token\":\"");
+        if (response.statusCode() != 200 || start < 0) {
+            throw new IllegalStateException("Connect failed: " + json);
+        }
+        start += "\"token\":\"".length();
+        return json.substring(start, json.indexOf('"', start));
+    }
+
+    private static HttpRequest.Builder authorized(String url, String token) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(60))
+                .header("Authorization", "Bearer " + token);
+    }
+
+    private static String ingestBody(int rows) {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"id\":\"").append(i)
+                    .append("\",\"name\":\"user-").append(i)
+                    .append("\",\"dob\":\"1990-01-01T00:00:00\"}");
+        }
+        return body.append(']').toString();
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    private record Result(double requestsPerSecond, double p50Millis, double p99Millis, double maxMillis, long errors) {
+    }
+}
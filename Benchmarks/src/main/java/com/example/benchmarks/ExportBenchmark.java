@@ -0,0 +1,67 @@
+package com.example.benchmarks;
+
+import com.example.backend.Model.ExportCompression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ClickHouse -> flat file: the CSV writing loop over a stubbed result set
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"4", "16", "64"})
+    public int width;
+
+    private BackendFixture fixture;
+    private List<String> columns;
+    private Path target;
+
+    @Setup
+    public void setUp() throws IOException {
+        SyntheticData data = new SyntheticData(rows, width);
+        fixture = new BackendFixture(data, 1);
+        columns = data.columns;
+        target = Files.createTempFile("export-benchmark-", ".csv");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(target);
+    }
+
+    // exportSelectedColumnsToFlatFile as the endpoint runs it, including the file write (mostly page cache)
+    @Benchmark
+    public void exportToFlatFile() {
+        fixture.clickHouseService.exportSelectedColumnsToFlatFile("bench", columns, target.toString());
+    }
+
+    // The same row loop with the file taken out, isolating CSV formatting cost
+    @Benchmark
+    public long exportToNullStream() {
+        return fixture.clickHouseService.exportSelectedColumns("bench", columns, OutputStream.nullOutputStream(), ExportCompression.NONE);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.benchmarks;
+
+import com.example.backend.DTO.IngestionStats;
+import com.example.backend.DTO.UploadSummaryDTO;
+import com.example.backend.Model.IngestOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Flat file -> ClickHouse: CSV parsing, row binding and batch grouping, all against the stub JDBC layer
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngestBenchmark {
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"4", "16", "64"})
+    public int width;
+
+    @Param({"10000"})
+    public int batchSize;
+
+    private BackendFixture fixture;
+    private List<Map<String, String>> rowMaps;
+    private MockMultipartFile csvFile;
+
+    @Setup
+    public void setUp() {
+        SyntheticData data = new SyntheticData(rows, width);
+        fixture = new BackendFixture(data, Runtime.getRuntime().availableProcessors());
+        rowMaps = data.rowMaps();
+        csvFile = new MockMultipartFile("file", "bench.csv", "text/csv", data.csv());
+    }
+
+    // FlatFileService.upload: parse the whole file into maps, then saveDyanamicData
+    @Benchmark
+    public List<Map<String, String>> csvUpload() {
+        return fixture.flatFileService.upload(csvFile, ",", "bench");
+    }
+
+    // FlatFileService.uploadStreaming: CSV records copied by position into pooled batches for the insert workers
+    @Benchmark
+    public UploadSummaryDTO csvUploadStreaming() {
+        return fixture.flatFileService.uploadStreaming(csvFile, ",", "bench", IngestOptions.ofBatchSize(batchSize));
+    }
+
+    // saveDyanamicData on already-parsed rows: dob rewrite plus one setString per cell
+    @Benchmark
+    public void saveDynamicData() throws Exception {
+        fixture.clickHouseService.saveDyanamicData(rowMaps, "bench");
+    }
+
+    // ingestData: row conversion on the calling thread, batches drained by the insert workers
+    @Benchmark
+    public IngestionStats ingestData() {
+        return fixture.clickHouseService.ingestData(rowMaps.stream(), "bench", IngestOptions.ofBatchSize(batchSize));
+    }
+}
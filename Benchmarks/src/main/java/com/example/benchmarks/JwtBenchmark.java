@@ -0,0 +1,72 @@
+package com.example.benchmarks;
+
+import com.example.backend.Service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// Per-request JWT cost on the interceptor path
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private static final String SECRET_KEY = "357638792F423F4428472B4B6250655368566D597133743677397A2443264629";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        token = jwtService.generateToken("benchmark-user");
+    }
+
+    // Repeat request with the same token: served from the verification cache
+    @Benchmark
+    public Claims verifyCached() {
+        return jwtService.verify(token);
+    }
+
+    // First request with a token: full signature check and claims parse on the shared parser
+    @Benchmark
+    public Claims verifyUncached() {
+        return new JwtService().verify(token);
+    }
+
+    // The original validateToken + extractUsername pair: a new key and parser for each of its three parses
+    @Benchmark
+    public String legacyValidateAndExtract() {
+        Date expiration = legacyClaims(token).getExpiration();
+        if (expiration.before(new Date())) {
+            throw new IllegalStateException("expired");
+        }
+        legacyClaims(token).getExpiration();
+        return legacyClaims(token).getSubject();
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.benchmarks;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.Model.ClickHouseConnection;
+import com.example.backend.Service.ClickHouseConnectionPool;
+import com.example.backend.Service.ClickHouseService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// The whole backend on a random port, Tomcat and MVC included, with its ClickHouse connections swapped for stubs
+// that block for a fixed round trip per statement. As with the real pool, at most poolSize connections are out at
+// once and a borrower waits for one to come back, so the thread mode is the only difference between two runs.
+final class StubBackend implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    StubBackend(boolean virtualThreads, Duration roundTrip, int poolSize) {
+        // As arguments, since default properties would lose to the backend's application.properties
+        context = new SpringApplicationBuilder(BackendApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--clickhouse.pool.max-size=" + poolSize,
+                // Every metadata request goes to the stub rather than the cache
+                "--clickhouse.metadata.ttl-ms=0",
+                // All clients share one session, whose rate limit would otherwise be what gets measured
+                "--clickhouse.tenant.requests-per-second=1000000",
+                "--clickhouse.tenant.burst=1000000",
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.backend=ERROR");
+        context.getBean(ClickHouseService.class).setConnectionPool(new StubConnectionPool(roundTrip, poolSize));
+    }
+
+    String url() {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    private static class StubConnectionPool extends ClickHouseConnectionPool {
+        private static final SyntheticData DATA = new SyntheticData(1, 3);
+
+        private final Duration roundTrip;
+        private final int poolSize;
+        private final Semaphore connections;
+
+        StubConnectionPool(Duration roundTrip, int poolSize) {
+            this.roundTrip = roundTrip;
+            this.poolSize = poolSize;
+            this.connections = new Semaphore(poolSize, true);
+        }
+
+        @Override
+        public int getMaxSize() {
+            return poolSize;
+        }
+
+        // Hikari's default connection timeout
+        @Override
+        public Connection getConnection(ClickHouseConnection settings) throws SQLException {
+            try {
+                if (!connections.tryAcquire(30, TimeUnit.SECONDS)) {
+                    throw new SQLTransientConnectionException("Connection is not available, request timed out after 30000ms");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            return StubJdbc.connection(DATA, roundTrip, connections::release);
+        }
+
+        @Override
+        public Connection openUnpooled(ClickHouseConnection settings) {
+            return StubJdbc.connection(DATA, roundTrip, () -> {
+            });
+        }
+    }
+}
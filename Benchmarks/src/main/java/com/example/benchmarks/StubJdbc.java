@@ -0,0 +1,113 @@
+package com.example.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// An in-memory JDBC layer so the benchmarks run without a ClickHouse server: DESCRIBE returns the synthetic
+// schema, SELECT replays the synthetic rows, and inserts, batches and DDL are accepted and discarded.
+// Every call goes through a dynamic proxy, a constant cost that is the same on both sides of a comparison.
+// A round trip, if given, blocks the calling thread once per executed statement and connection check.
+final class StubJdbc {
+
+    private StubJdbc() {
+    }
+
+    static Connection connection(SyntheticData data) {
+        return connection(data, Duration.ZERO, () -> {
+        });
+    }
+
+    // onClose runs once, on the first close()
+    static Connection connection(SyntheticData data, Duration roundTrip, Runnable onClose) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return proxy(Connection.class, (proxy, method, args) -> switch (method.getName()) {
+            case "prepareStatement" -> statement(PreparedStatement.class, data, (String) args[0], roundTrip);
+            case "createStatement" -> statement(Statement.class, data, null, roundTrip);
+            case "isValid" -> {
+                pause(roundTrip);
+                yield true;
+            }
+            case "close" -> {
+                if (closed.compareAndSet(false, true)) {
+                    onClose.run();
+                }
+                yield null;
+            }
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    private static <T extends Statement> T statement(Class<T> type, SyntheticData data, String preparedSql, Duration roundTrip) {
+        return proxy(type, (proxy, method, args) -> switch (method.getName()) {
+            case "executeQuery" -> {
+                pause(roundTrip);
+                yield resultSet(data, args != null && args.length > 0 ? (String) args[0] : preparedSql);
+            }
+            case "executeBatch" -> {
+                pause(roundTrip);
+                yield new int[0];
+            }
+            case "execute", "executeUpdate", "executeLargeUpdate" -> {
+                pause(roundTrip);
+                yield defaultValue(method.getReturnType());
+            }
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    private static void pause(Duration roundTrip) throws InterruptedException {
+        if (!roundTrip.isZero()) {
+            Thread.sleep(roundTrip);
+        }
+    }
+
+    private static ResultSet resultSet(SyntheticData data, String sql) {
+        String query = sql.trim().toUpperCase(Locale.ROOT);
+        String[][] rows;
+        if (query.startsWith("DESCRIBE")) {
+            rows = new String[data.columns.size()][];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = new String[]{data.columns.get(i), data.columnTypes.get(i)};
+            }
+        } else if (query.startsWith("SELECT")) {
+            rows = data.cells;
+        } else {
+            rows = new String[0][];
+        }
+        int[] cursor = {-1};
+        return proxy(ResultSet.class, (proxy, method, args) -> switch (method.getName()) {
+            case "next" -> ++cursor[0] < rows.length;
+            case "getString", "getObject" -> rows[cursor[0]][(Integer) args[0] - 1];
+            case "getLong" -> Long.parseLong(rows[cursor[0]][(Integer) args[0] - 1]);
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        return null;
+    }
+}
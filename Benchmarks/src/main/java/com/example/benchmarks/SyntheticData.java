@@ -0,0 +1,71 @@
+package com.example.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// A deterministic table of `rows` x `width` cells shaped like typical uploads: an id, a name,
+// a dob in ISO date-time form (exercising the dob rewrite), an amount, then alternating text and number columns.
+final class SyntheticData {
+
+    final List<String> columns;
+    final List<String> columnTypes;
+    final String[][] cells;
+
+    SyntheticData(int rows, int width) {
+        Random random = new Random(42);
+        columns = new ArrayList<>(width);
+        columnTypes = new ArrayList<>(width);
+        for (int c = 0; c < width; c++) {
+            columns.add(switch (c) {
+                case 0 -> "id";
+                case 1 -> "name";
+                case 2 -> "dob";
+                case 3 -> "amount";
+                default -> "col_" + c;
+            });
+            columnTypes.add("String");
+        }
+        cells = new String[rows][width];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < width; c++) {
+                cells[r][c] = switch (c) {
+                    case 0 -> Integer.toString(r);
+                    case 1 -> "user-" + random.nextInt(100_000);
+                    case 2 -> String.format("19%02d-%02d-%02dT%02d:%02d:%02d", random.nextInt(100), 1 + random.nextInt(12),
+                            1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60));
+                    case 3 -> String.format("%d.%02d", random.nextInt(10_000), random.nextInt(100));
+                    default -> c % 2 == 0 ? "text value " + random.nextInt(1000) : Integer.toString(random.nextInt());
+                };
+            }
+        }
+    }
+
+    List<Map<String, String>> rowMaps() {
+        List<Map<String, String>> rows = new ArrayList<>(cells.length);
+        for (String[] row : cells) {
+            Map<String, String> map = new LinkedHashMap<>();
+            for (int c = 0; c < row.length; c++) {
+                map.put(columns.get(c), row[c]);
+            }
+            rows.add(map);
+        }
+        return rows;
+    }
+
+    byte[] csv() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(cells.length * columns.size() * 12);
+        StringBuilder line = new StringBuilder(String.join(",", columns)).append('\n');
+        out.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+        for (String[] row : cells) {
+            line.setLength(0);
+            line.append(String.join(",", row)).append('\n');
+            out.writeBytes(line.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+}